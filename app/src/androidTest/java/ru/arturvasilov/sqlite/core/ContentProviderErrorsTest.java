@@ -2,6 +2,7 @@ package ru.arturvasilov.sqlite.core;
 
 import android.content.ContentValues;
 import android.database.Cursor;
+import android.net.Uri;
 import android.support.annotation.NonNull;
 import android.support.test.InstrumentationRegistry;
 
@@ -11,6 +12,8 @@ import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 import org.sqlite.database.sqlite.SQLiteDatabase;
 
+import ru.arturvasilov.sqlite.testutils.TestTable;
+
 /**
  * @author Artur Vasilov
  */
@@ -44,6 +47,31 @@ public class ContentProviderErrorsTest {
         SQLite.get().delete(BAD_TABLE);
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadLimitParameter() throws Exception {
+        queryWithParameter(SQLiteContentProvider.PARAMETER_LIMIT, "1; DELETE FROM TestTable");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadOffsetParameter() throws Exception {
+        queryWithParameter(SQLiteContentProvider.PARAMETER_OFFSET, "1 UNION SELECT 1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadGroupByParameter() throws Exception {
+        queryWithParameter(SQLiteContentProvider.PARAMETER_GROUP_BY, "text; DELETE FROM TestTable");
+    }
+
+    private static void queryWithParameter(@NonNull String parameter, @NonNull String value) {
+        Uri uri = TestTable.TABLE.getUri().buildUpon()
+                .appendQueryParameter(parameter, value)
+                .build();
+        Cursor cursor = InstrumentationRegistry.getContext().getContentResolver().query(uri, null, null, null, null);
+        if (cursor != null) {
+            cursor.close();
+        }
+    }
+
     private static class BadTable extends BaseTable<Integer> {
 
         @Override
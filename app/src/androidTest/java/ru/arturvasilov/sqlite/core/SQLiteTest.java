@@ -1,5 +1,8 @@
 package ru.arturvasilov.sqlite.core;
 
+import android.database.Cursor;
+import android.net.Uri;
+import android.support.annotation.NonNull;
 import android.support.test.InstrumentationRegistry;
 import android.support.test.runner.AndroidJUnit4;
 
@@ -11,22 +14,45 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.sqlite.database.sqlite.SQLiteDatabase;
+import org.sqlite.database.sqlite.SQLiteException;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import ru.arturvasilov.sqlite.testutils.TestObject;
 import ru.arturvasilov.sqlite.testutils.TestTable;
+import ru.arturvasilov.sqlite.utils.IndexBuilder;
+import ru.arturvasilov.sqlite.utils.TableBuilder;
 
 import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
 import static junit.framework.TestCase.assertTrue;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.mockito.Matchers.anyListOf;
-import static org.mockito.Mockito.times;
 
 @RunWith(AndroidJUnit4.class)
 public class SQLiteTest {
 
+    private static final int TIMEOUT_MILLIS = 2000;
+
+    /**
+     * Time to make sure that nothing else is delivered, it's used only when no notification is expected
+     */
+    private static final int SILENCE_MILLIS = 300;
+
     @Before
     public void setUp() throws Exception {
         SQLite.initialize(InstrumentationRegistry.getContext());
@@ -213,15 +239,13 @@ public class SQLiteTest {
 
         SQLite.get().insert(TestTable.TABLE, new TestObject(5, 6, "text"));
         SQLite.get().delete(TestTable.TABLE);
-        Thread.sleep(300);
 
-        Mockito.verify(observer, times(2)).onTableChanged();
+        Mockito.verify(observer, Mockito.timeout(TIMEOUT_MILLIS).times(2)).onTableChanged();
 
         Mockito.reset(observer);
         SQLite.get().unregisterObserver(observer);
         SQLite.get().insert(TestTable.TABLE, new TestObject(5, 6, "text"));
-        Thread.sleep(300);
-        Mockito.verifyNoMoreInteractions(observer);
+        Mockito.verify(observer, Mockito.after(SILENCE_MILLIS).never()).onTableChanged();
     }
 
     @SuppressWarnings("unchecked")
@@ -234,14 +258,12 @@ public class SQLiteTest {
         SQLite.get().registerObserver(TestTable.TABLE, observer);
 
         SQLite.get().insert(TestTable.TABLE, new TestObject(5, 9.7, "text"));
-        Thread.sleep(300);
-        Mockito.verify(observer).onTableChanged(anyListOf(TestObject.class));
+        Mockito.verify(observer, Mockito.timeout(TIMEOUT_MILLIS)).onTableChanged(anyListOf(TestObject.class));
 
         Mockito.reset(observer);
         SQLite.get().unregisterObserver(observer);
         SQLite.get().delete(TestTable.TABLE);
-        Thread.sleep(300);
-        Mockito.verifyNoMoreInteractions(observer);
+        Mockito.verify(observer, Mockito.after(SILENCE_MILLIS).never()).onTableChanged(anyListOf(TestObject.class));
     }
 
     @SuppressWarnings("unchecked")
@@ -257,10 +279,9 @@ public class SQLiteTest {
         list.add(new TestObject(5, 9.7, "text"));
         list.add(new TestObject(6, 8, "text2"));
         SQLite.get().insert(TestTable.TABLE, list);
-        Thread.sleep(300);
 
         ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
-        Mockito.verify(observer).onTableChanged(captor.capture());
+        Mockito.verify(observer, Mockito.timeout(TIMEOUT_MILLIS)).onTableChanged(captor.capture());
         assertEquals(1, captor.getValue().size());
     }
 
@@ -272,16 +293,14 @@ public class SQLiteTest {
         SQLite.get().registerObserver(TestTable.TABLE, observer, Where.create().equalTo(TestTable.ID, 100));
 
         SQLite.get().insert(TestTable.TABLE, new TestObject(1000, 8.8, "None"));
-        Thread.sleep(300);
 
-        Mockito.verifyNoMoreInteractions(observer);
+        Mockito.verify(observer, Mockito.after(SILENCE_MILLIS).never()).onTableChanged(anyListOf(TestObject.class));
 
         SQLite.get().enableAutomaticNotifications();
         SQLite.get().delete(TestTable.TABLE);
-        Thread.sleep(300);
 
         ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
-        Mockito.verify(observer).onTableChanged(captor.capture());
+        Mockito.verify(observer, Mockito.timeout(TIMEOUT_MILLIS)).onTableChanged(captor.capture());
         assertEquals(0, captor.getValue().size());
     }
 
@@ -294,12 +313,900 @@ public class SQLiteTest {
 
         SQLite.get().insert(TestTable.TABLE, new TestObject(1, 3.2, "hello"));
         SQLite.get().notifyTableChanged(TestTable.TABLE);
-        Thread.sleep(300);
-        Mockito.verify(observer).onTableChanged(anyListOf(TestObject.class));
+        Mockito.verify(observer, Mockito.timeout(TIMEOUT_MILLIS)).onTableChanged(anyListOf(TestObject.class));
+    }
+
+    @Test
+    public void testIterate() throws Exception {
+        List<TestObject> elements = new ArrayList<>();
+        elements.add(new TestObject(1, 9.5, "a"));
+        elements.add(new TestObject(2, 6.7, "ab"));
+        elements.add(new TestObject(3, 8.2, "abc"));
+        SQLite.get().insert(TestTable.TABLE, elements);
+
+        List<TestObject> iterated = new ArrayList<>();
+        for (TestObject element : SQLite.get().iterate(TestTable.TABLE)) {
+            iterated.add(element);
+        }
+        assertEquals(elements, iterated);
+    }
+
+    @Test
+    public void testIterateEarlyClose() throws Exception {
+        List<TestObject> elements = new ArrayList<>();
+        elements.add(new TestObject(1, 9.5, "a"));
+        elements.add(new TestObject(2, 6.7, "ab"));
+        SQLite.get().insert(TestTable.TABLE, elements);
+
+        QueryIterable<TestObject> iterable = SQLite.get().iterate(TestTable.TABLE, Where.create().equalTo(TestTable.ID, 2));
+        Iterator<TestObject> iterator = iterable.iterator();
+        assertTrue(iterator.hasNext());
+        assertEquals(elements.get(1), iterator.next());
+
+        iterable.close();
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testQueryPages() throws Exception {
+        List<TestObject> elements = new ArrayList<>();
+        elements.add(new TestObject(1, 9.5, "a"));
+        elements.add(new TestObject(2, 6.7, "ab"));
+        elements.add(new TestObject(3, 8.2, "ab"));
+        elements.add(new TestObject(4, 3.4, "ab"));
+        elements.add(new TestObject(5, 6.5, "ab"));
+        SQLite.get().insert(TestTable.TABLE, elements);
+
+        Where where = Where.create().equalTo(TestTable.TEXT, "ab");
+        Page<TestObject> page = SQLite.get().queryPage(TestTable.TABLE, where, TestTable.ID, 3, null);
+        assertEquals(3, page.getItems().size());
+        assertEquals(elements.get(1), page.getItems().get(0));
+        assertTrue(page.hasNext());
+
+        page = SQLite.get().queryPage(TestTable.TABLE, where, TestTable.ID, 3, page.getNextKey());
+        assertEquals(1, page.getItems().size());
+        assertEquals(elements.get(4), page.getItems().get(0));
+        assertFalse(page.hasNext());
+    }
+
+    @Test
+    public void testQueryProjection() throws Exception {
+        List<TestObject> elements = new ArrayList<>();
+        elements.add(new TestObject(1, 9.5, "a"));
+        elements.add(new TestObject(2, 6.7, "ab"));
+        SQLite.get().insert(TestTable.TABLE, elements);
+
+        Projection<String> textProjection = new Projection<String>() {
+            @NonNull
+            @Override
+            public String[] getColumns() {
+                return new String[]{TestTable.TEXT};
+            }
+
+            @NonNull
+            @Override
+            public String fromCursor(@NonNull Cursor cursor) {
+                assertEquals(1, cursor.getColumnCount());
+                return cursor.getString(0);
+            }
+        };
+
+        List<String> texts = SQLite.get().query(TestTable.TABLE, textProjection, Where.create());
+        assertEquals(2, texts.size());
+        assertEquals("a", texts.get(0));
+        assertEquals("ab", texts.get(1));
+
+        String text = SQLite.get().querySingle(TestTable.TABLE, textProjection, Where.create().equalTo(TestTable.ID, 2));
+        assertEquals("ab", text);
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        SQLite.get().insert(TestTable.TABLE, new TestObject(1, 9.5, "a"));
+
+        List<TestObject> elements = new ArrayList<>();
+        elements.add(new TestObject(2, 6.7, "ab"));
+        elements.add(new TestObject(3, 8.2, "abc"));
+        int count = SQLite.get().batch()
+                .insert(TestTable.TABLE, elements)
+                .update(TestTable.TABLE, Where.create().equalTo(TestTable.ID, 2), new TestObject(2, 1.1, "xyz"))
+                .delete(TestTable.TABLE, Where.create().equalTo(TestTable.ID, 1))
+                .execute();
+        assertEquals(4, count);
+
+        List<TestObject> saved = SQLite.get().query(TestTable.TABLE);
+        assertEquals(2, saved.size());
+        assertEquals(new TestObject(2, 1.1, "xyz"), saved.get(0));
+        assertEquals(elements.get(1), saved.get(1));
+    }
+
+    @Test
+    public void testBatchSingleNotification() throws Exception {
+        SQLite.get().enableAutomaticNotifications();
+
+        BasicTableObserver observer = Mockito.mock(BasicTableObserver.class);
+        Mockito.doNothing().when(observer).onTableChanged();
+        SQLite.get().registerObserver(TestTable.TABLE, observer);
+
+        SQLite.get().batch()
+                .insert(TestTable.TABLE, new TestObject(1, 9.5, "a"))
+                .insert(TestTable.TABLE, new TestObject(2, 6.7, "ab"))
+                .delete(TestTable.TABLE, Where.create().equalTo(TestTable.ID, 1))
+                .execute();
+
+        Mockito.verify(observer, Mockito.timeout(TIMEOUT_MILLIS)).onTableChanged();
+        Mockito.verify(observer, Mockito.after(SILENCE_MILLIS).times(1)).onTableChanged();
+        SQLite.get().unregisterObserver(observer);
+    }
+
+    @Test
+    public void testTransactionRollback() throws Exception {
+        SQLite.get().insert(TestTable.TABLE, new TestObject(1, 9.5, "a"));
+        try {
+            SQLite.get().runInTransaction(new Runnable() {
+                @Override
+                public void run() {
+                    SQLite.get().insert(TestTable.TABLE, new TestObject(2, 6.7, "ab"));
+                    SQLite.get().delete(TestTable.TABLE, Where.create().equalTo(TestTable.ID, 1));
+                    throw new IllegalArgumentException();
+                }
+            });
+            Assert.fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+
+        List<TestObject> saved = SQLite.get().query(TestTable.TABLE);
+        assertEquals(1, saved.size());
+        assertEquals(1, saved.get(0).getId());
+    }
+
+    @Test
+    public void testTransactionSingleNotification() throws Exception {
+        SQLite.get().enableAutomaticNotifications();
+
+        BasicTableObserver observer = Mockito.mock(BasicTableObserver.class);
+        Mockito.doNothing().when(observer).onTableChanged();
+        SQLite.get().registerObserver(TestTable.TABLE, observer);
+
+        int count = SQLite.get().runInTransaction(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                SQLite.get().insert(TestTable.TABLE, new TestObject(1, 9.5, "a"));
+                TestObject object = SQLite.get().querySingle(TestTable.TABLE, Where.create().equalTo(TestTable.ID, 1));
+                assertNotNull(object);
+                object.setText("b");
+                return SQLite.get().update(TestTable.TABLE, Where.create().equalTo(TestTable.ID, 1), object);
+            }
+        });
+        assertEquals(1, count);
+
+        Mockito.verify(observer, Mockito.timeout(TIMEOUT_MILLIS)).onTableChanged();
+        Mockito.verify(observer, Mockito.after(SILENCE_MILLIS).times(1)).onTableChanged();
+        SQLite.get().unregisterObserver(observer);
+    }
+
+    @Test
+    public void testObserveTableChangeDebounced() throws Exception {
+        SQLite.get().enableAutomaticNotifications();
+
+        BasicTableObserver observer = Mockito.mock(BasicTableObserver.class);
+        Mockito.doNothing().when(observer).onTableChanged();
+        SQLite.get().registerObserver(TestTable.TABLE, observer, 200);
+
+        for (int i = 0; i < 10; i++) {
+            SQLite.get().insert(TestTable.TABLE, new TestObject(i, i, "text"));
+        }
+
+        Mockito.verify(observer, Mockito.timeout(TIMEOUT_MILLIS)).onTableChanged();
+        Mockito.verify(observer, Mockito.after(SILENCE_MILLIS).times(1)).onTableChanged();
+        SQLite.get().unregisterObserver(observer);
+    }
+
+    @Test
+    public void testObserveRowsChange() throws Exception {
+        SQLite.get().enableAutomaticNotifications();
+
+        RecordingRowObserver observer = new RecordingRowObserver();
+        SQLite.get().registerObserver(TestTable.TABLE, observer);
+
+        SQLite.get().insert(TestTable.TABLE, new TestObject(5, 6, "text"));
+        SQLite.get().insert(TestTable.TABLE, new TestObject(7, 6, "text"));
+        SQLite.get().delete(TestTable.TABLE, Where.create().equalTo(TestTable.ID, 5));
+
+        Set<Long> changedRows = observer.awaitRows(5L, 7L);
+        assertEquals(2, changedRows.size());
+        assertEquals(0, observer.getTableChanges());
+
+        SQLite.get().unregisterObserver(observer);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testObserveSharedQuery() throws Exception {
+        SQLite.get().enableAutomaticNotifications();
+
+        ContentTableObserver<TestObject> first = Mockito.mock(ContentTableObserver.class);
+        ContentTableObserver<TestObject> second = Mockito.mock(ContentTableObserver.class);
+        SQLite.get().registerObserver(TestTable.TABLE, first, Where.create().lessThan(TestTable.RATING, 5));
+        SQLite.get().registerObserver(TestTable.TABLE, second, Where.create().lessThan(TestTable.RATING, 5));
+
+        SQLite.get().insert(TestTable.TABLE, new TestObject(1, 3, "text"));
+
+        Mockito.verify(first, Mockito.timeout(TIMEOUT_MILLIS)).onTableChanged(anyListOf(TestObject.class));
+        Mockito.verify(second, Mockito.timeout(TIMEOUT_MILLIS)).onTableChanged(anyListOf(TestObject.class));
+
+        SQLite.get().unregisterObserver(first);
+        Mockito.reset(first, second);
+        SQLite.get().insert(TestTable.TABLE, new TestObject(2, 3, "text"));
+
+        // both observers share the query, so the first one would be called at the same time as the second
+        Mockito.verify(second, Mockito.timeout(TIMEOUT_MILLIS)).onTableChanged(anyListOf(TestObject.class));
+        Mockito.verifyNoMoreInteractions(first);
+        SQLite.get().unregisterObserver(second);
+    }
+
+    @Test
+    public void testRegisterObserversConcurrently() throws Exception {
+        SQLite.get().enableAutomaticNotifications();
+
+        BasicTableObserver observer = Mockito.mock(BasicTableObserver.class);
+        SQLite.get().registerObserver(TestTable.TABLE, observer);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 100; j++) {
+                        BasicTableObserver temporary = Mockito.mock(BasicTableObserver.class);
+                        SQLite.get().registerObserver(TestTable.TABLE, temporary);
+                        SQLite.get().unregisterObserver(temporary);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        SQLite.get().insert(TestTable.TABLE, new TestObject(1, 2, "text"));
+
+        Mockito.verify(observer, Mockito.timeout(TIMEOUT_MILLIS)).onTableChanged();
+        SQLite.get().unregisterObserver(observer);
+    }
+
+    @Test
+    public void testQueryCache() throws Exception {
+        SQLite.get().enableQueryCache(10);
+        try {
+            SQLite.get().insert(TestTable.TABLE, new TestObject(1, 2, "text"));
+            Where where = Where.create().equalTo(TestTable.ID, 1);
+
+            assertEquals(1, SQLite.get().query(TestTable.TABLE, where).size());
+            assertEquals(1, SQLite.get().query(TestTable.TABLE, where).size());
+            assertEquals(1, SQLite.get().getQueryCacheHitCount());
+            assertEquals(1, SQLite.get().getQueryCacheMissCount());
+
+            SQLite.get().delete(TestTable.TABLE, where);
+            assertTrue(SQLite.get().query(TestTable.TABLE, where).isEmpty());
+            assertEquals(1, SQLite.get().getQueryCacheHitCount());
+            assertEquals(2, SQLite.get().getQueryCacheMissCount());
+        } finally {
+            SQLite.get().disableQueryCache();
+        }
+    }
+
+    @Test
+    public void testGetById() throws Exception {
+        SQLite.get().enableIdentityMap(10);
+        try {
+            List<TestObject> elements = new ArrayList<>();
+            elements.add(new TestObject(1, 9.5, "a"));
+            elements.add(new TestObject(2, 6.7, "ab"));
+            elements.add(new TestObject(3, 8.2, "abc"));
+            SQLite.get().insert(TestTable.TABLE, elements);
+
+            TestObject first = SQLite.get().getById(TestTable.TABLE, 2);
+            assertNotNull(first);
+            assertEquals("ab", first.getText());
+            assertTrue(first == SQLite.get().getById(TestTable.TABLE, 2));
+
+            List<TestObject> objects = SQLite.get().getByIds(TestTable.TABLE, Arrays.asList(3, 5, 1));
+            assertEquals(2, objects.size());
+            assertEquals(3, objects.get(0).getId());
+            assertEquals(1, objects.get(1).getId());
+
+            SQLite.get().update(TestTable.TABLE, Where.create().equalTo(TestTable.ID, 2), new TestObject(2, 1.1, "xyz"));
+            TestObject updated = SQLite.get().getById(TestTable.TABLE, 2);
+            assertNotNull(updated);
+            assertEquals("xyz", updated.getText());
+            assertNull(SQLite.get().getById(TestTable.TABLE, 100));
+        } finally {
+            SQLite.get().disableIdentityMap();
+        }
+    }
+
+    @Test
+    public void testCompiledQuery() throws Exception {
+        List<TestObject> elements = new ArrayList<>();
+        elements.add(new TestObject(1, 9.5, "a"));
+        elements.add(new TestObject(2, 6.7, "ab"));
+        elements.add(new TestObject(3, 8.2, "abc"));
+        SQLite.get().insert(TestTable.TABLE, elements);
+
+        CompiledQuery<TestObject> query = CompiledQuery.create(TestTable.TABLE,
+                Where.create().equalTo(TestTable.ID, 1));
+        assertEquals(1, query.getArgumentsCount());
+
+        TestObject object = SQLite.get().querySingle(query);
+        assertNotNull(object);
+        assertEquals("a", object.getText());
+
+        object = SQLite.get().querySingle(query, 3);
+        assertNotNull(object);
+        assertEquals("abc", object.getText());
+
+        assertTrue(SQLite.get().query(query, 10).isEmpty());
+    }
+
+    @Test
+    public void testQueryOrderAndLimit() throws Exception {
+        List<TestObject> elements = new ArrayList<>();
+        elements.add(new TestObject(1, 9.5, "a"));
+        elements.add(new TestObject(2, 6.7, "ab"));
+        elements.add(new TestObject(3, 8.2, "ab"));
+        elements.add(new TestObject(4, 3.4, "abcd"));
+        SQLite.get().insert(TestTable.TABLE, elements);
+
+        List<TestObject> top = SQLite.get().query(TestTable.TABLE,
+                Where.create().orderByDescending(TestTable.RATING).limit(2));
+        assertEquals(2, top.size());
+        assertEquals(1, top.get(0).getId());
+        assertEquals(3, top.get(1).getId());
+
+        TestObject second = SQLite.get().querySingle(TestTable.TABLE,
+                Where.create().orderBy(TestTable.RATING).offset(1));
+        assertNotNull(second);
+        assertEquals(2, second.getId());
+
+        List<TestObject> grouped = SQLite.get().query(TestTable.TABLE,
+                Where.create().equalTo(TestTable.TEXT, "ab").orderBy(TestTable.ID).groupBy(TestTable.TEXT));
+        assertEquals(1, grouped.size());
+
+        Projection<String> textProjection = new Projection<String>() {
+            @NonNull
+            @Override
+            public String[] getColumns() {
+                return new String[]{TestTable.TEXT};
+            }
+
+            @NonNull
+            @Override
+            public String fromCursor(@NonNull Cursor cursor) {
+                return cursor.getString(0);
+            }
+        };
+        List<String> texts = SQLite.get().query(TestTable.TABLE, textProjection, Where.create().orderBy(TestTable.TEXT));
+        assertEquals(Arrays.asList("a", "ab", "ab", "abcd"), texts);
+        List<String> distinctTexts = SQLite.get().query(TestTable.TABLE, textProjection,
+                Where.create().orderBy(TestTable.TEXT).distinct());
+        assertEquals(Arrays.asList("a", "ab", "abcd"), distinctTexts);
+    }
+
+    @Test
+    public void testAggregates() throws Exception {
+        assertEquals(0, SQLite.get().count(TestTable.TABLE));
+        assertFalse(SQLite.get().exists(TestTable.TABLE));
+        assertTrue(Double.isNaN(SQLite.get().max(TestTable.TABLE, TestTable.RATING, Where.create())));
+        assertEquals(0.0, SQLite.get().sum(TestTable.TABLE, TestTable.RATING, Where.create()), 0.000001);
+
+        List<TestObject> elements = new ArrayList<>();
+        elements.add(new TestObject(1, 9.5, "a"));
+        elements.add(new TestObject(2, 6.5, "ab"));
+        elements.add(new TestObject(3, 8.0, "ab"));
+        SQLite.get().insert(TestTable.TABLE, elements);
+
+        Where where = Where.create().equalTo(TestTable.TEXT, "ab").limit(1);
+        assertEquals(3, SQLite.get().count(TestTable.TABLE));
+        assertEquals(2, SQLite.get().count(TestTable.TABLE, where));
+        assertTrue(SQLite.get().exists(TestTable.TABLE, where));
+        assertFalse(SQLite.get().exists(TestTable.TABLE, Where.create().equalTo(TestTable.TEXT, "abc")));
+        assertEquals(6.5, SQLite.get().min(TestTable.TABLE, TestTable.RATING, Where.create()), 0.000001);
+        assertEquals(9.5, SQLite.get().max(TestTable.TABLE, TestTable.RATING, Where.create()), 0.000001);
+        assertEquals(14.5, SQLite.get().sum(TestTable.TABLE, TestTable.RATING, where), 0.000001);
+        assertEquals(8.0, SQLite.get().avg(TestTable.TABLE, TestTable.RATING, Where.create()), 0.000001);
+    }
+
+    @Test
+    public void testAsyncOperations() throws Exception {
+        List<SQLiteFuture<Uri>> inserts = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            inserts.add(AsyncSQLite.get().insert(TestTable.TABLE, new TestObject(i, i, "async")));
+        }
+        for (SQLiteFuture<Uri> insert : inserts) {
+            assertNotNull(insert.get());
+        }
+
+        assertEquals(Long.valueOf(10), AsyncSQLite.get().count(TestTable.TABLE, Where.create()).get());
+        List<TestObject> elements = AsyncSQLite.get()
+                .query(TestTable.TABLE, Where.create().orderByDescending(TestTable.ID).limit(1)).get();
+        assertEquals(1, elements.size());
+        assertEquals(10, elements.get(0).getId());
+        assertEquals(0, AsyncSQLite.get().getWriteQueueDepth());
+    }
+
+    @Test
+    public void testAsyncGroupCommit() throws Exception {
+        AsyncSQLite.get().enableGroupCommit(50, 5);
+        try {
+            List<SQLiteFuture<Uri>> inserts = new ArrayList<>();
+            for (int i = 1; i <= 12; i++) {
+                inserts.add(AsyncSQLite.get().insert(TestTable.TABLE, new TestObject(i, i, "group")));
+            }
+            SQLiteFuture<Integer> update = AsyncSQLite.get().update(TestTable.TABLE,
+                    Where.create().equalTo(TestTable.ID, 12), new TestObject(12, 0, "updated"));
+            for (SQLiteFuture<Uri> insert : inserts) {
+                assertNotNull(insert.get());
+            }
+            assertEquals(Integer.valueOf(1), update.get());
+
+            assertEquals(12, SQLite.get().count(TestTable.TABLE));
+            TestObject updated = SQLite.get().querySingle(TestTable.TABLE, Where.create().equalTo(TestTable.ID, 12));
+            assertNotNull(updated);
+            assertEquals("updated", updated.getText());
+            assertEquals(0, AsyncSQLite.get().getWriteQueueDepth());
+        } finally {
+            AsyncSQLite.get().disableGroupCommit();
+        }
+    }
+
+    @Test
+    public void testWarmUp() throws Exception {
+        assertNull(AsyncSQLite.get().warmUp().get());
+        assertTrue(AsyncSQLite.get().isNativeLibraryLoaded());
+    }
+
+    @Test
+    public void testObserveRowsChangeOnUpdate() throws Exception {
+        SQLite.get().insert(TestTable.TABLE, new TestObject(1, 6, "text"));
+        SQLite.get().insert(TestTable.TABLE, new TestObject(2, 6, "text"));
+        SQLite.get().enableAutomaticNotifications();
+
+        RowTableObserver observer = Mockito.mock(RowTableObserver.class);
+        SQLite.get().registerObserver(TestTable.TABLE, observer);
+
+        SQLite.get().update(TestTable.TABLE, Where.create().equalTo(TestTable.ID, 2), new TestObject(2, 7, "new"));
+
+        Mockito.verify(observer, Mockito.timeout(TIMEOUT_MILLIS)).onRowsChanged(Collections.singleton(2L));
+        Mockito.verify(observer, Mockito.never()).onTableChanged();
+
+        SQLite.get().unregisterObserver(observer);
+    }
+
+    @Test
+    public void testBulkInsertCompiled() throws Exception {
+        initializeDirectAccess();
+
+        List<TestObject> elements = new ArrayList<>();
+        elements.add(new TestObject(1, 9.5, "a"));
+        elements.add(new TestObject(2, 6.7, null));
+        elements.add(new TestObject(3, 8.2, "abc"));
+        assertEquals(elements.size(), SQLite.get().insert(TestTable.TABLE, elements));
+
+        List<TestObject> saved = SQLite.get().query(TestTable.TABLE, Where.create().orderBy(TestTable.ID));
+        assertEquals(elements.size(), saved.size());
+        assertEquals(elements.get(0), saved.get(0));
+        assertEquals(2, saved.get(1).getId());
+        assertNull(saved.get(1).getText());
+        assertEquals(elements.get(2), saved.get(2));
+    }
+
+    @Test
+    public void testBulkInsertCompileFailure() throws Exception {
+        initializeDirectAccess();
+
+        try {
+            SQLite.get().insert(new MissingColumnTestTable(), Collections.singletonList(new TestObject(1, 9.5, "a")));
+            Assert.fail();
+        } catch (SQLiteException ignored) {
+        }
+
+        assertFalse(SQLiteContentProvider.getDatabaseDataSource().getWritableDatabase().inTransaction());
+        SQLite.get().insert(TestTable.TABLE, Collections.singletonList(new TestObject(2, 6.7, "ab")));
+        assertEquals(1, SQLite.get().query(TestTable.TABLE).size());
+    }
+
+    @Test
+    public void testObserveSeveralTables() throws Exception {
+        Table<TestObject> otherTable = new OtherTestTable();
+        BasicTableObserver observer = Mockito.mock(BasicTableObserver.class);
+        SQLite.get().registerObserver(TestTable.TABLE, observer);
+        SQLite.get().registerObserver(otherTable, observer);
+
+        SQLite.get().notifyTableChanged(TestTable.TABLE);
+        Mockito.verify(observer, Mockito.timeout(TIMEOUT_MILLIS).times(1)).onTableChanged();
+        SQLite.get().notifyTableChanged(otherTable);
+        Mockito.verify(observer, Mockito.timeout(TIMEOUT_MILLIS).times(2)).onTableChanged();
+
+        Mockito.reset(observer);
+        SQLite.get().registerObserver(otherTable, observer);
+        SQLite.get().notifyTableChanged(otherTable);
+        Mockito.verify(observer, Mockito.timeout(TIMEOUT_MILLIS)).onTableChanged();
+        Mockito.verify(observer, Mockito.after(SILENCE_MILLIS).times(1)).onTableChanged();
+
+        Mockito.reset(observer);
+        SQLite.get().unregisterObserver(observer);
+        SQLite.get().notifyTableChanged(TestTable.TABLE);
+        SQLite.get().notifyTableChanged(otherTable);
+        Mockito.verify(observer, Mockito.after(SILENCE_MILLIS).never()).onTableChanged();
+    }
+
+    @Test
+    public void testNestedTransactionFailure() throws Exception {
+        SQLite.get().enableAutomaticNotifications();
+        BasicTableObserver observer = Mockito.mock(BasicTableObserver.class);
+        SQLite.get().registerObserver(TestTable.TABLE, observer);
+
+        try {
+            SQLite.get().runInTransaction(new Runnable() {
+                @Override
+                public void run() {
+                    SQLite.get().insert(TestTable.TABLE, new TestObject(1, 9.5, "a"));
+                    try {
+                        SQLite.get().runInTransaction(new Runnable() {
+                            @Override
+                            public void run() {
+                                SQLite.get().insert(TestTable.TABLE, new TestObject(2, 6.7, "ab"));
+                                throw new IllegalArgumentException();
+                            }
+                        });
+                    } catch (IllegalArgumentException ignored) {
+                    }
+                }
+            });
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+
+        assertTrue(SQLite.get().query(TestTable.TABLE).isEmpty());
+        Mockito.verify(observer, Mockito.after(SILENCE_MILLIS).never()).onTableChanged();
+        SQLite.get().unregisterObserver(observer);
+    }
+
+    @Test
+    public void testQueryInTransactionSeesUncommittedRows() throws Exception {
+        List<TestObject> saved = SQLite.get().runInTransaction(new Callable<List<TestObject>>() {
+            @Override
+            public List<TestObject> call() throws Exception {
+                SQLite.get().insert(TestTable.TABLE, new TestObject(1, 9.5, "a"));
+                assertTrue(SQLiteContentProvider.getDatabaseDataSource().getQueryDatabase()
+                        == SQLiteContentProvider.getDatabaseDataSource().getWritableDatabase());
+                return SQLite.get().query(TestTable.TABLE);
+            }
+        });
+        assertEquals(1, saved.size());
+        assertEquals(1, saved.get(0).getId());
+    }
+
+    @Test
+    public void testUpgradeIndexes() throws Exception {
+        SQLiteDatabase database = SQLiteContentProvider.getDatabaseDataSource().getWritableDatabase();
+        database.execSQL("CREATE INDEX TestTable_manual ON TestTable(text)");
+        try {
+            TableBuilder.create(TestTable.TABLE)
+                    .intColumn(TestTable.ID)
+                    .realColumn(TestTable.RATING)
+                    .textColumn(TestTable.TEXT)
+                    .primaryKey(TestTable.ID)
+                    .index(IndexBuilder.create("rating").column(TestTable.RATING))
+                    .index(IndexBuilder.create("text").column(TestTable.TEXT))
+                    .execute(database);
+            Map<String, String> indexes = readIndexes(database);
+            assertEquals(new HashSet<>(Arrays.asList("TestTable_manual", "TestTable__rating", "TestTable__text")),
+                    indexes.keySet());
+
+            TableBuilder.create(TestTable.TABLE)
+                    .intColumn(TestTable.ID)
+                    .realColumn(TestTable.RATING)
+                    .textColumn(TestTable.TEXT)
+                    .primaryKey(TestTable.ID)
+                    .index(IndexBuilder.create("rating").descColumn(TestTable.RATING))
+                    .index(IndexBuilder.create("id_rating").column(TestTable.ID).column(TestTable.RATING))
+                    .execute(database);
+            indexes = readIndexes(database);
+            assertEquals(new HashSet<>(Arrays.asList("TestTable_manual", "TestTable__rating", "TestTable__id_rating")),
+                    indexes.keySet());
+            assertEquals("CREATE INDEX TestTable__rating ON TestTable(rating DESC)", indexes.get("TestTable__rating"));
+        } finally {
+            for (String index : readIndexes(database).keySet()) {
+                database.execSQL("DROP INDEX IF EXISTS " + index);
+            }
+        }
+    }
+
+    @Test
+    public void testObserveTableChangeDebouncedUnderSteadyWrites() throws Exception {
+        BasicTableObserver observer = Mockito.mock(BasicTableObserver.class);
+        SQLite.get().registerObserver(TestTable.TABLE, observer, 200);
+
+        for (int i = 0; i < 20; i++) {
+            SQLite.get().notifyTableChanged(TestTable.TABLE);
+            Thread.sleep(50);
+        }
+
+        Mockito.verify(observer, Mockito.timeout(TIMEOUT_MILLIS).atLeast(3)).onTableChanged();
+        SQLite.get().unregisterObserver(observer);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testQueryPageGrouped() throws Exception {
+        SQLite.get().queryPage(TestTable.TABLE, Where.create().groupBy(TestTable.TEXT), TestTable.ID, 10, null);
+    }
+
+    @Test
+    public void testDirectAccessOperations() throws Exception {
+        initializeDirectAccess();
+
+        SQLite.get().insert(TestTable.TABLE, new TestObject(1, 9.5, "a"));
+        SQLite.get().insert(TestTable.TABLE, new TestObject(2, 6.7, "ab"));
+        List<TestObject> saved = SQLite.get().query(TestTable.TABLE, Where.create().orderBy(TestTable.ID));
+        assertEquals(2, saved.size());
+        assertEquals(new TestObject(1, 9.5, "a"), saved.get(0));
+
+        int updated = SQLite.get().update(TestTable.TABLE, Where.create().equalTo(TestTable.ID, 2),
+                new TestObject(2, 7.1, "bc"));
+        assertEquals(1, updated);
+        TestObject second = SQLite.get().querySingle(TestTable.TABLE, Where.create().equalTo(TestTable.ID, 2));
+        assertEquals(new TestObject(2, 7.1, "bc"), second);
+
+        int deleted = SQLite.get().delete(TestTable.TABLE, Where.create().equalTo(TestTable.ID, 1));
+        assertEquals(1, deleted);
+        saved = SQLite.get().query(TestTable.TABLE);
+        assertEquals(1, saved.size());
+        assertEquals(2, saved.get(0).getId());
+    }
+
+    @Test
+    public void testDirectAccessNotifications() throws Exception {
+        initializeDirectAccess();
+        SQLite.get().enableAutomaticNotifications();
+
+        BasicTableObserver observer = Mockito.mock(BasicTableObserver.class);
+        SQLite.get().registerObserver(TestTable.TABLE, observer);
+
+        SQLite.get().insert(TestTable.TABLE, new TestObject(5, 6, "text"));
+        Mockito.verify(observer, Mockito.timeout(TIMEOUT_MILLIS).times(1)).onTableChanged();
+        SQLite.get().update(TestTable.TABLE, Where.create().equalTo(TestTable.ID, 5), new TestObject(5, 7, "text"));
+        Mockito.verify(observer, Mockito.timeout(TIMEOUT_MILLIS).times(2)).onTableChanged();
+        SQLite.get().delete(TestTable.TABLE);
+        Mockito.verify(observer, Mockito.timeout(TIMEOUT_MILLIS).times(3)).onTableChanged();
+
+        Mockito.reset(observer);
+        SQLite.get().unregisterObserver(observer);
+        SQLite.get().insert(TestTable.TABLE, new TestObject(5, 6, "text"));
+        Mockito.verify(observer, Mockito.after(SILENCE_MILLIS).never()).onTableChanged();
+    }
+
+    @Test
+    public void testQueryCacheLiteralWhitespaces() throws Exception {
+        SQLite.get().enableQueryCache(10);
+        try {
+            SQLite.get().insert(TestTable.TABLE, new TestObject(1, 2, "a  b"));
+            SQLite.get().insert(TestTable.TABLE, new TestObject(2, 3, "a b"));
+
+            List<TestObject> first = SQLite.get().query(TestTable.TABLE, Where.create().where("text = 'a  b'"));
+            List<TestObject> second = SQLite.get().query(TestTable.TABLE, Where.create().where("text = 'a b'"));
+            assertEquals(1, first.size());
+            assertEquals(1, first.get(0).getId());
+            assertEquals(1, second.size());
+            assertEquals(2, second.get(0).getId());
+            assertEquals(0, SQLite.get().getQueryCacheHitCount());
+            assertEquals(2, SQLite.get().getQueryCacheMissCount());
+        } finally {
+            SQLite.get().disableQueryCache();
+        }
+    }
+
+    @Test
+    public void testObserveSharedQueryWithEqualObservers() throws Exception {
+        SQLite.get().enableAutomaticNotifications();
+
+        EqualContentObserver first = new EqualContentObserver();
+        EqualContentObserver second = new EqualContentObserver();
+        assertEquals(first, second);
+        SQLite.get().registerObserver(TestTable.TABLE, first, Where.create());
+        SQLite.get().registerObserver(TestTable.TABLE, second, Where.create());
+
+        SQLite.get().insert(TestTable.TABLE, new TestObject(1, 3, "text"));
+        assertTrue(first.awaitChange());
+        assertTrue(second.awaitChange());
+
+        SQLite.get().unregisterObserver(first);
+        SQLite.get().insert(TestTable.TABLE, new TestObject(2, 3, "text"));
+        assertTrue(second.awaitChange());
+        SQLite.get().unregisterObserver(second);
+    }
+
+    @Test
+    public void testBooleanArgumentsInBothModes() throws Exception {
+        Where where = Where.create().equalTo(TestTable.ID, true);
+        SQLite.get().insert(TestTable.TABLE, new TestObject(1, 9.5, "a"));
+        SQLite.get().insert(TestTable.TABLE, new TestObject(2, 6.7, "ab"));
+
+        List<TestObject> resolverRows = SQLite.get().query(TestTable.TABLE, where);
+        assertEquals(1, resolverRows.size());
+        assertEquals(1, resolverRows.get(0).getId());
+
+        initializeDirectAccess();
+        List<TestObject> directRows = SQLite.get().query(TestTable.TABLE, where);
+        assertEquals(resolverRows, directRows);
+    }
+
+    @Test
+    public void testObserveReplacingInsertAsTableChange() throws Exception {
+        SQLiteDatabase database = SQLiteContentProvider.getDatabaseDataSource().getWritableDatabase();
+        database.execSQL("CREATE UNIQUE INDEX TestTable_unique_text ON TestTable(text)");
+        try {
+            SQLite.get().insert(TestTable.TABLE, new TestObject(1, 6, "text"));
+            SQLite.get().enableAutomaticNotifications();
+
+            RowTableObserver observer = Mockito.mock(RowTableObserver.class);
+            SQLite.get().registerObserver(TestTable.TABLE, observer);
+
+            // replaces the row with id 1, which is not reported by the rowid of the inserted row
+            SQLite.get().insert(TestTable.TABLE, new TestObject(2, 7, "text"));
+
+            Mockito.verify(observer, Mockito.timeout(2000)).onTableChanged();
+            Mockito.verify(observer, Mockito.never()).onRowsChanged(Mockito.<Set<Long>>any());
+            assertEquals(1, SQLite.get().query(TestTable.TABLE).size());
+
+            SQLite.get().unregisterObserver(observer);
+        } finally {
+            database.execSQL("DROP INDEX IF EXISTS TestTable_unique_text");
+        }
+    }
+
+    @Test
+    public void testResetUnregistersObservers() throws Exception {
+        BasicTableObserver observer = Mockito.mock(BasicTableObserver.class);
+        SQLite.get().registerObserver(TestTable.TABLE, observer);
+
+        SQLite.reset();
+        SQLite.initialize(InstrumentationRegistry.getContext());
+        SQLite.get().notifyTableChanged(TestTable.TABLE);
+
+        Mockito.verify(observer, Mockito.after(SILENCE_MILLIS).never()).onTableChanged();
+    }
+
+    @Test
+    public void testDirectInsertAfterClose() throws Exception {
+        initializeDirectAccess();
+
+        SQLite.get().insert(TestTable.TABLE, new TestObject(1, 9.5, "a"));
+        SQLite.get().insert(TestTable.TABLE, new TestObject(2, 6.7, "ab"));
+        // cached insert belongs to the closed connection, so it must be compiled again
+        SQLiteContentProvider.getDatabaseDataSource().close();
+        SQLite.get().insert(TestTable.TABLE, new TestObject(3, 8.2, "abc"));
+
+        List<TestObject> saved = SQLite.get().query(TestTable.TABLE, Where.create().orderBy(TestTable.ID));
+        assertEquals(3, saved.size());
+        assertEquals(new TestObject(3, 8.2, "abc"), saved.get(2));
     }
 
     @After
     public void tearDown() throws Exception {
         SQLite.get().delete(TestTable.TABLE);
+        SQLite.reset();
+    }
+
+    @NonNull
+    private static Map<String, String> readIndexes(@NonNull SQLiteDatabase database) {
+        Map<String, String> indexes = new HashMap<>();
+        Cursor cursor = database.rawQuery("SELECT name, sql FROM sqlite_master "
+                + "WHERE type = 'index' AND tbl_name = 'TestTable' AND sql IS NOT NULL", null);
+        try {
+            while (cursor.moveToNext()) {
+                indexes.put(cursor.getString(0), cursor.getString(1));
+            }
+        } finally {
+            cursor.close();
+        }
+        return indexes;
+    }
+
+    private static void initializeDirectAccess() {
+        SQLite.reset();
+        SQLite.initialize(InstrumentationRegistry.getContext(), true);
+        SQLite.get().disableAutomaticNotifications();
+    }
+
+    /**
+     * All instances are equal, but each of them must be registered separately
+     */
+    private static class EqualContentObserver implements ContentTableObserver<TestObject> {
+
+        private final BlockingQueue<List<TestObject>> mChanges = new LinkedBlockingQueue<>();
+
+        @Override
+        public void onTableChanged(@NonNull List<TestObject> tableData) {
+            mChanges.add(tableData);
+        }
+
+        boolean awaitChange() throws InterruptedException {
+            return mChanges.poll(2, TimeUnit.SECONDS) != null;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof EqualContentObserver;
+        }
+
+        @Override
+        public int hashCode() {
+            return 0;
+        }
+    }
+
+    /**
+     * Row observer, which merges all reported rows, so the test can wait for the certain rows
+     */
+    private static class RecordingRowObserver implements RowTableObserver {
+
+        private final Set<Long> mRows = new HashSet<>();
+
+        private int mTableChanges;
+
+        @Override
+        public synchronized void onRowsChanged(@NonNull Set<Long> rowIds) {
+            mRows.addAll(rowIds);
+            notifyAll();
+        }
+
+        @Override
+        public synchronized void onTableChanged() {
+            mTableChanges++;
+            notifyAll();
+        }
+
+        @NonNull
+        synchronized Set<Long> awaitRows(Long... rowIds) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            List<Long> expected = Arrays.asList(rowIds);
+            long remaining = TIMEOUT_MILLIS;
+            while (!mRows.containsAll(expected) && remaining > 0) {
+                wait(remaining);
+                remaining = deadline - System.currentTimeMillis();
+            }
+            assertTrue(mRows.containsAll(expected));
+            return new HashSet<>(mRows);
+        }
+
+        synchronized int getTableChanges() {
+            return mTableChanges;
+        }
+    }
+
+    /**
+     * Table which is never created, it's only used for notifications
+     */
+    private static class OtherTestTable extends TestTable {
+    }
+
+    private static class MissingColumnTestTable extends TestTable {
+
+        @NonNull
+        @Override
+        public String getTableName() {
+            return TestTable.class.getSimpleName();
+        }
+
+        @NonNull
+        @Override
+        public String[] getInsertColumns() {
+            return new String[]{ID, "missing_column"};
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,158 @@
+package ru.arturvasilov.sqlite.core;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.sqlite.database.sqlite.SQLiteDatabase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import ru.arturvasilov.sqlite.testutils.TestObject;
+import ru.arturvasilov.sqlite.testutils.TestTable;
+import ru.arturvasilov.sqlite.utils.SQLiteUtils;
+
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+
+/**
+ * Shared test provider uses the default configuration,
+ * so the WAL database with read connections is created here in the separate file.
+ *
+ * @author Artur Vasilov
+ */
+@RunWith(AndroidJUnit4.class)
+public class WalDatabaseTest {
+
+    private static final String DATABASE_NAME = "wal.db";
+
+    private static final long MMAP_SIZE = 1024 * 1024;
+
+    private Context mContext;
+
+    private DatabaseDataSource mDataSource;
+
+    @Before
+    public void setUp() throws Exception {
+        // the native library is loaded by the shared test provider, which is created with the test process
+        mContext = InstrumentationRegistry.getContext();
+
+        SQLiteConfig config = new SQLiteConfig();
+        config.setDatabaseName(DATABASE_NAME);
+        config.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        config.setMmapSize(MMAP_SIZE);
+
+        SQLiteSchema schema = new SQLiteSchema();
+        schema.register(TestTable.TABLE);
+
+        SQLiteHelper sqLiteHelper = new SQLiteHelper(mContext, config, schema);
+        mDataSource = new DatabaseDataSource(sqLiteHelper,
+                new ReadConnectionPool(sqLiteHelper, config, config.getReadConnectionPoolSize()));
+    }
+
+    @Test
+    public void testReadConnectionsConfigured() throws Exception {
+        SQLiteDatabase writer = mDataSource.getWritableDatabase();
+        assertEquals("wal", readPragma(writer, "journal_mode"));
+        assertEquals(String.valueOf(MMAP_SIZE), readPragma(writer, "mmap_size"));
+
+        SQLiteDatabase reader = mDataSource.getQueryDatabase();
+        assertFalse(reader == writer);
+        assertEquals("wal", readPragma(reader, "journal_mode"));
+        assertEquals(String.valueOf(MMAP_SIZE), readPragma(reader, "mmap_size"));
+    }
+
+    @Test
+    public void testQueryInTransactionSeesUncommittedRows() throws Exception {
+        SQLiteDatabase writer = mDataSource.getWritableDatabase();
+        writer.beginTransaction();
+        try {
+            mDataSource.insert(TestTable.TABLE, new TestObject(1, 9.5, "a"));
+            assertTrue(mDataSource.getQueryDatabase() == writer);
+
+            List<TestObject> saved = query(Where.create());
+            assertEquals(1, saved.size());
+            assertEquals(1, saved.get(0).getId());
+        } finally {
+            writer.endTransaction();
+        }
+    }
+
+    @Test
+    public void testQueryThroughReadConnectionPool() throws Exception {
+        final List<TestObject> elements = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            elements.add(new TestObject(i, i / 2.0, "text" + i));
+        }
+        mDataSource.bulkInsert(TestTable.TABLE, elements);
+        assertFalse(mDataSource.getQueryDatabase() == mDataSource.getWritableDatabase());
+
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < 10; j++) {
+                            assertEquals(elements, query(Where.create().orderBy(TestTable.ID)));
+                            List<TestObject> single = query(Where.create().equalTo(TestTable.ID, 7));
+                            assertEquals(Collections.singletonList(elements.get(6)), single);
+                        }
+                    } catch (Throwable e) {
+                        errors.add(e);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(errors.toString(), errors.isEmpty());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mDataSource.close();
+        mContext.deleteDatabase(DATABASE_NAME);
+    }
+
+    @NonNull
+    private List<TestObject> query(@NonNull Where where) {
+        List<TestObject> list = new ArrayList<>();
+        Cursor cursor = mDataSource.query(TestTable.TABLE, null, where, null);
+        try {
+            if (SQLiteUtils.isEmptyCursor(cursor)) {
+                return list;
+            }
+            do {
+                list.add(TestTable.TABLE.fromCursor(cursor));
+            } while (cursor.moveToNext());
+            return list;
+        } finally {
+            SQLiteUtils.safeCloseCursor(cursor);
+        }
+    }
+
+    @NonNull
+    private static String readPragma(@NonNull SQLiteDatabase database, @NonNull String pragma) {
+        Cursor cursor = database.rawQuery("PRAGMA " + pragma, null);
+        try {
+            assertTrue(cursor.moveToFirst());
+            return cursor.getString(0);
+        } finally {
+            cursor.close();
+        }
+    }
+}
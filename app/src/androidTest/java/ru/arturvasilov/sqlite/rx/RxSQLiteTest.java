@@ -240,6 +240,53 @@ public class RxSQLiteTest {
         assertEquals(2, captor.getValue().size());
     }
 
+    @Test
+    public void testIterate() throws Exception {
+        List<TestObject> elements = new ArrayList<>();
+        elements.add(new TestObject(1, 9.5, "a"));
+        elements.add(new TestObject(2, 6.7, "ab"));
+        elements.add(new TestObject(3, 8.2, "abc"));
+        SQLite.get().insert(TestTable.TABLE, elements);
+
+        List<TestObject> iterated = RxSQLite.get().iterate(TestTable.TABLE).take(2).test().values();
+        assertEquals(2, iterated.size());
+        assertEquals(elements.get(0), iterated.get(0));
+        assertEquals(elements.get(1), iterated.get(1));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testObserveQueryLatest() throws Exception {
+        SQLite.get().enableAutomaticNotifications();
+
+        Consumer<List<TestObject>> action = Mockito.mock(Consumer.class);
+        Disposable disposable = RxSQLite.get().observeQuery(TestTable.TABLE, Where.create()).subscribe(action);
+
+        for (int i = 0; i < 10; i++) {
+            SQLite.get().insert(TestTable.TABLE, new TestObject(i, i, "text"));
+        }
+        Thread.sleep(500);
+
+        ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(action, Mockito.atLeastOnce()).accept(captor.capture());
+        assertEquals(10, captor.getValue().size());
+        disposable.dispose();
+    }
+
+    @Test
+    public void testCountAndExists() throws Exception {
+        List<TestObject> elements = new ArrayList<>();
+        elements.add(new TestObject(1, 9.5, "a"));
+        elements.add(new TestObject(2, 6.5, "ab"));
+        SQLite.get().insert(TestTable.TABLE, elements);
+
+        Where where = Where.create().greaterThan(TestTable.RATING, 7);
+        assertEquals(Long.valueOf(1), RxSQLite.get().count(TestTable.TABLE, where).blockingFirst());
+        assertEquals(Boolean.TRUE, RxSQLite.get().exists(TestTable.TABLE, where).blockingFirst());
+        assertEquals(8.0, RxSQLite.get().avg(TestTable.TABLE, TestTable.RATING, Where.create()).blockingFirst(),
+                0.000001);
+    }
+
     @After
     public void tearDown() throws Exception {
         SQLite.get().delete(TestTable.TABLE);
@@ -5,22 +5,26 @@ import android.database.Cursor;
 import android.support.annotation.NonNull;
 
 import org.sqlite.database.sqlite.SQLiteDatabase;
+import org.sqlite.database.sqlite.SQLiteStatement;
 
 import ru.arturvasilov.sqlite.core.BaseTable;
-import ru.arturvasilov.sqlite.core.Table;
+import ru.arturvasilov.sqlite.core.BindableTable;
+import ru.arturvasilov.sqlite.core.KeyedTable;
 import ru.arturvasilov.sqlite.utils.TableBuilder;
 
 /**
  * @author Artur Vasilov
  */
-public class TestTable extends BaseTable<TestObject> {
+public class TestTable extends BaseTable<TestObject> implements KeyedTable<TestObject>, BindableTable<TestObject> {
 
-    public static final Table<TestObject> TABLE = new TestTable();
+    public static final KeyedTable<TestObject> TABLE = new TestTable();
 
     public static final String ID = "id";
     public static final String RATING = "rating";
     public static final String TEXT = "text";
 
+    private static final String[] INSERT_COLUMNS = {ID, RATING, TEXT};
+
     @Override
     public void onCreate(@NonNull SQLiteDatabase database) {
         TableBuilder.create(this)
@@ -50,4 +54,33 @@ public class TestTable extends BaseTable<TestObject> {
         return new TestObject(id, rating, text);
     }
 
+    @NonNull
+    @Override
+    public String[] getInsertColumns() {
+        return INSERT_COLUMNS;
+    }
+
+    @Override
+    public void bind(@NonNull SQLiteStatement statement, @NonNull TestObject testObject) {
+        statement.bindLong(1, testObject.getId());
+        statement.bindDouble(2, testObject.getRating());
+        if (testObject.getText() == null) {
+            statement.bindNull(3);
+        } else {
+            statement.bindString(3, testObject.getText());
+        }
+    }
+
+    @NonNull
+    @Override
+    public String getKeyColumn() {
+        return ID;
+    }
+
+    @NonNull
+    @Override
+    public Object getKey(@NonNull TestObject testObject) {
+        return testObject.getId();
+    }
+
 }
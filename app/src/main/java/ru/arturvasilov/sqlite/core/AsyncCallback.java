@@ -0,0 +1,26 @@
+package ru.arturvasilov.sqlite.core;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Use this interface to get the result of the operation from {@link AsyncSQLite}.
+ * This interface is used in {@link SQLiteFuture#addCallback(AsyncCallback)}
+ * <p/>
+ * Both methods are called on the main thread.
+ *
+ * @author Artur Vasilov
+ */
+public interface AsyncCallback<T> {
+
+    /**
+     * @param result - result of the operation
+     */
+    void onSuccess(T result);
+
+    /**
+     * @param error - exception thrown by the operation or {@link java.util.concurrent.CancellationException}
+     *              if the operation was cancelled
+     */
+    void onError(@NonNull Throwable error);
+
+}
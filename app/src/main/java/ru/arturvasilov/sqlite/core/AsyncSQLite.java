@@ -0,0 +1,455 @@
+package ru.arturvasilov.sqlite.core;
+
+import android.content.Context;
+import android.net.Uri;
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous version of {@link SQLite}, which doesn't depend on Rx.
+ * <p/>
+ * All writes are executed one by one in the single writer thread, so they never wait for each other
+ * on the database lock, and reads are executed in the bounded pool of reader threads.
+ * Each method returns {@link SQLiteFuture}, which can be used both as a Future and to add callbacks:
+ * <pre>
+ * {code
+ * AsyncSQLite.get().insert(PersonTable.TABLE, person);
+ * AsyncSQLite.get().count(PersonTable.TABLE, Where.create()).addCallback(mCountCallback);
+ * }
+ * </pre>
+ * Operations are executed outside of the caller's transaction, so they don't see its' uncommitted changes.
+ * <p/>
+ * Many small writes can be committed together with {@link AsyncSQLite#enableGroupCommit(long, int)}.
+ * For the documentation of each operation please take a look at {@link SQLite}.
+ *
+ * @author Artur Vasilov
+ */
+public class AsyncSQLite {
+
+    private static final int READER_THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private static final long READER_KEEP_ALIVE_SECONDS = 30;
+
+    private static AsyncSQLite sSQLite;
+
+    private final ScheduledThreadPoolExecutor mWriteExecutor;
+
+    private final ThreadPoolExecutor mReadExecutor;
+
+    private final AtomicInteger mWaitingWrites = new AtomicInteger();
+
+    private final AtomicLong mCompletedWrites = new AtomicLong();
+
+    /**
+     * Guards the group and the order of writes in the writer queue
+     */
+    private final Object mWriteLock = new Object();
+
+    private long mGroupCommitWindowMillis;
+    private int mGroupCommitMaxOperations;
+
+    private List<SQLiteFuture<?>> mGroup;
+    private ScheduledFuture<?> mGroupTimer;
+
+    private AsyncSQLite() {
+        mWriteExecutor = new ScheduledThreadPoolExecutor(1, new SQLiteThreadFactory("SQLite-writer"));
+        mReadExecutor = new ThreadPoolExecutor(READER_THREADS, READER_THREADS,
+                READER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new SQLiteThreadFactory("SQLite-reader"));
+        mReadExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Before calling this method be sure that you've successfully initialized SQLite instance
+     * (by {@link SQLite#initialize(Context)}), since all operations are executed by it.
+     *
+     * @return singleton instance of AsyncSQLite
+     */
+    @NonNull
+    public static AsyncSQLite get() {
+        SQLite.get();
+
+        AsyncSQLite sqLite = sSQLite;
+        if (sqLite == null) {
+            synchronized (SQLite.class) {
+                sqLite = sSQLite;
+                if (sqLite == null) {
+                    sqLite = sSQLite = new AsyncSQLite();
+                }
+            }
+        }
+        return sqLite;
+    }
+
+    /**
+     * Opens the database in the writer thread after the native library is loaded,
+     * so the following operations don't wait for it. Does nothing if {@link SQLiteContentProvider}
+     * lives in the other process, since its' database is opened there.
+     * <p/>
+     * Future completes when the database is ready, so it can be used as a readiness signal at the app start:
+     * <pre>
+     * {code
+     * AsyncSQLite.get().warmUp().addCallback(new AsyncCallback<Void>() {
+     *     public void onSuccess(Void result) {
+     *         // database is ready
+     *     }
+     *
+     *     public void onError(Throwable error) {
+     *         // database can't be opened
+     *     }
+     * });
+     * }
+     * </pre>
+     *
+     * @return future, which completes when the database is ready
+     */
+    @NonNull
+    public SQLiteFuture<Void> warmUp() {
+        return write(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                if (SQLiteContentProvider.hasDatabaseDataSource()) {
+                    SQLiteContentProvider.getDatabaseDataSource().getWritableDatabase();
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * @return true if the native library is loaded, which doesn't mean that the database is already opened
+     */
+    public boolean isNativeLibraryLoaded() {
+        return NativeLibrary.isLoaded();
+    }
+
+    /**
+     * {@link SQLite#query(Table, Where)}
+     */
+    @NonNull
+    public <T> SQLiteFuture<List<T>> query(@NonNull final Table<T> table, @NonNull final Where where) {
+        return read(new Callable<List<T>>() {
+            @Override
+            public List<T> call() throws Exception {
+                return SQLite.get().query(table, where);
+            }
+        });
+    }
+
+    /**
+     * {@link SQLite#query(CompiledQuery, Object...)}
+     */
+    @NonNull
+    public <T> SQLiteFuture<List<T>> query(@NonNull final CompiledQuery<T> query, @NonNull final Object... args) {
+        return read(new Callable<List<T>>() {
+            @Override
+            public List<T> call() throws Exception {
+                return SQLite.get().query(query, args);
+            }
+        });
+    }
+
+    /**
+     * {@link SQLite#querySingle(Table, Where)}
+     */
+    @NonNull
+    public <T> SQLiteFuture<T> querySingle(@NonNull final Table<T> table, @NonNull final Where where) {
+        return read(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                return SQLite.get().querySingle(table, where);
+            }
+        });
+    }
+
+    /**
+     * {@link SQLite#count(Table, Where)}
+     */
+    @NonNull
+    public SQLiteFuture<Long> count(@NonNull final Table<?> table, @NonNull final Where where) {
+        return read(new Callable<Long>() {
+            @Override
+            public Long call() throws Exception {
+                return SQLite.get().count(table, where);
+            }
+        });
+    }
+
+    /**
+     * {@link SQLite#exists(Table, Where)}
+     */
+    @NonNull
+    public SQLiteFuture<Boolean> exists(@NonNull final Table<?> table, @NonNull final Where where) {
+        return read(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return SQLite.get().exists(table, where);
+            }
+        });
+    }
+
+    /**
+     * {@link SQLite#insert(Table, Object)}
+     */
+    @NonNull
+    public <T> SQLiteFuture<Uri> insert(@NonNull final Table<T> table, @NonNull final T object) {
+        return groupWrite(new Callable<Uri>() {
+            @Override
+            public Uri call() throws Exception {
+                return SQLite.get().insert(table, object);
+            }
+        });
+    }
+
+    /**
+     * {@link SQLite#insert(Table, List)}
+     */
+    @NonNull
+    public <T> SQLiteFuture<Integer> insert(@NonNull final Table<T> table, @NonNull final List<T> objects) {
+        return write(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                return SQLite.get().insert(table, objects);
+            }
+        });
+    }
+
+    /**
+     * {@link SQLite#delete(Table, Where)}
+     */
+    @NonNull
+    public <T> SQLiteFuture<Integer> delete(@NonNull final Table<T> table, @NonNull final Where where) {
+        return groupWrite(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                return SQLite.get().delete(table, where);
+            }
+        });
+    }
+
+    /**
+     * {@link SQLite#update(Table, Where, Object)}
+     */
+    @NonNull
+    public <T> SQLiteFuture<Integer> update(@NonNull final Table<T> table, @NonNull final Where where,
+                                            @NonNull final T newObject) {
+        return groupWrite(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                return SQLite.get().update(table, where, newObject);
+            }
+        });
+    }
+
+    /**
+     * {@link SQLite#runInTransaction(Callable)} in the writer thread
+     */
+    @NonNull
+    public <R> SQLiteFuture<R> runInTransaction(@NonNull final Callable<R> callable) {
+        return write(new Callable<R>() {
+            @Override
+            public R call() throws Exception {
+                return SQLite.get().runInTransaction(callable);
+            }
+        });
+    }
+
+    /**
+     * Executes any read operation, e.g. a few queries with {@link SQLite}, in the reader pool
+     *
+     * @param callable - operation, which only reads the database
+     * @return future with the result of the operation
+     */
+    @NonNull
+    public <R> SQLiteFuture<R> read(@NonNull Callable<R> callable) {
+        SQLiteFuture<R> future = new SQLiteFuture<>(callable);
+        mReadExecutor.execute(future);
+        return future;
+    }
+
+    /**
+     * Executes any operation, which changes the database, in the writer thread after all previous writes
+     *
+     * @param callable - operation, which changes the database
+     * @return future with the result of the operation
+     */
+    @NonNull
+    public <R> SQLiteFuture<R> write(@NonNull Callable<R> callable) {
+        final SQLiteFuture<R> future = new SQLiteFuture<>(callable);
+        synchronized (mWriteLock) {
+            // pending group was submitted earlier, so it must be committed before this write
+            flushGroupLocked();
+            mWaitingWrites.incrementAndGet();
+            mWriteExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    mWaitingWrites.decrementAndGet();
+                    future.run();
+                    mCompletedWrites.incrementAndGet();
+                }
+            });
+        }
+        return future;
+    }
+
+    /**
+     * Enables group commit: single-row inserts, updates and deletes, which arrive within the window,
+     * are executed in one transaction, so all of them pay for a single commit instead of one commit each.
+     * <p/>
+     * Futures of the grouped operations are completed only after the shared commit. If one operation fails,
+     * only its' future fails, but if the commit fails, all operations of the group fail.
+     * Other writes are not grouped and wait for the pending group to commit, so the order of writes is kept.
+     * <p/>
+     * Note: group commit requires {@link SQLiteContentProvider} to run in the same process, same as transactions.
+     *
+     * @param windowMillis  - maximum time the first operation of the group waits for the others
+     * @param maxOperations - count of operations, after which the group is committed without waiting
+     */
+    public void enableGroupCommit(long windowMillis, int maxOperations) {
+        if (windowMillis < 0 || maxOperations <= 0) {
+            throw new IllegalArgumentException("Window must not be negative and max operations must be positive");
+        }
+        // fails fast if there is no direct access to the database for transactions
+        SQLiteContentProvider.getDatabaseDataSource();
+        synchronized (mWriteLock) {
+            mGroupCommitWindowMillis = windowMillis;
+            mGroupCommitMaxOperations = maxOperations;
+        }
+    }
+
+    /**
+     * Disables group commit, pending group is committed immediately
+     */
+    public void disableGroupCommit() {
+        synchronized (mWriteLock) {
+            mGroupCommitMaxOperations = 0;
+            flushGroupLocked();
+        }
+    }
+
+    /**
+     * @return count of write operations waiting for the writer thread, including the ones waiting for the group
+     */
+    public int getWriteQueueDepth() {
+        return mWaitingWrites.get();
+    }
+
+    /**
+     * @return count of read operations waiting for the free reader thread
+     */
+    public int getReadQueueDepth() {
+        return mReadExecutor.getQueue().size();
+    }
+
+    /**
+     * @return approximate count of completed write operations
+     */
+    public long getCompletedWriteCount() {
+        return mCompletedWrites.get();
+    }
+
+    /**
+     * @return approximate count of completed read operations
+     */
+    public long getCompletedReadCount() {
+        return mReadExecutor.getCompletedTaskCount();
+    }
+
+    @NonNull
+    private <R> SQLiteFuture<R> groupWrite(@NonNull Callable<R> callable) {
+        synchronized (mWriteLock) {
+            if (mGroupCommitMaxOperations == 0) {
+                return write(callable);
+            }
+
+            SQLiteFuture<R> future = new SQLiteFuture<>(callable);
+            mWaitingWrites.incrementAndGet();
+            if (mGroup == null) {
+                mGroup = new ArrayList<>();
+                mGroupTimer = mWriteExecutor.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        synchronized (mWriteLock) {
+                            flushGroupLocked();
+                        }
+                    }
+                }, mGroupCommitWindowMillis, TimeUnit.MILLISECONDS);
+            }
+            mGroup.add(future);
+            if (mGroup.size() >= mGroupCommitMaxOperations) {
+                flushGroupLocked();
+            }
+            return future;
+        }
+    }
+
+    private void flushGroupLocked() {
+        if (mGroup == null) {
+            return;
+        }
+        final List<SQLiteFuture<?>> group = mGroup;
+        mGroup = null;
+        mGroupTimer.cancel(false);
+        mGroupTimer = null;
+        mWriteExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                commitGroup(group);
+            }
+        });
+    }
+
+    private void commitGroup(@NonNull final List<SQLiteFuture<?>> group) {
+        mWaitingWrites.addAndGet(-group.size());
+        try {
+            SQLite.get().runInTransaction(new Runnable() {
+                @Override
+                public void run() {
+                    for (SQLiteFuture<?> future : group) {
+                        future.runDeferred();
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            for (SQLiteFuture<?> future : group) {
+                future.fail(e);
+            }
+            return;
+        } finally {
+            mCompletedWrites.addAndGet(group.size());
+        }
+        for (SQLiteFuture<?> future : group) {
+            future.publish();
+        }
+    }
+
+    private static class SQLiteThreadFactory implements ThreadFactory {
+
+        private final String mName;
+
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        SQLiteThreadFactory(@NonNull String name) {
+            mName = name;
+        }
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            Thread thread = new Thread(runnable, mName + "-" + mCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+}
@@ -0,0 +1,93 @@
+package ru.arturvasilov.sqlite.core;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builder for the set of write operations, which are applied atomically in a single transaction.
+ * Operations can work with any tables of the database:
+ * <pre>
+ * {code
+ * SQLite.get().batch()
+ *       .delete(PersonTable.TABLE, Where.create().lessThan(PersonTable.AGE, 18))
+ *       .insert(CityTable.TABLE, cities)
+ *       .update(CountryTable.TABLE, Where.create().equalTo(CountryTable.ID, 7), country)
+ *       .execute();
+ * }
+ * </pre>
+ * Either all operations are applied or none of them. If automatic notifications are enabled,
+ * each changed table is notified only once after the transaction is committed.
+ * <p/>
+ * Instances of this class are created by {@link SQLite#batch()}.
+ *
+ * @author Artur Vasilov
+ */
+public class Batch {
+
+    private final SQLite mSQLite;
+
+    private final List<BatchOperation> mOperations;
+
+    Batch(@NonNull SQLite sqLite) {
+        mSQLite = sqLite;
+        mOperations = new ArrayList<>();
+    }
+
+    /**
+     * {@link SQLite#insert(Table, Object)}
+     */
+    @NonNull
+    public <T> Batch insert(@NonNull Table<T> table, @NonNull T object) {
+        mOperations.add(new BatchOperation(BatchOperation.Type.INSERT, table, table.toValues(object), null, null));
+        return this;
+    }
+
+    /**
+     * {@link SQLite#insert(Table, List)}
+     */
+    @NonNull
+    public <T> Batch insert(@NonNull Table<T> table, @NonNull List<T> objects) {
+        for (T object : objects) {
+            insert(table, object);
+        }
+        return this;
+    }
+
+    /**
+     * {@link SQLite#update(Table, Where, Object)}
+     */
+    @NonNull
+    public <T> Batch update(@NonNull Table<T> table, @NonNull Where where, @NonNull T newObject) {
+        mOperations.add(new BatchOperation(BatchOperation.Type.UPDATE, table, table.toValues(newObject),
+                where.where(), where.bindValues()));
+        return this;
+    }
+
+    /**
+     * {@link SQLite#delete(Table)}
+     */
+    @NonNull
+    public <T> Batch delete(@NonNull Table<T> table) {
+        return delete(table, Where.create());
+    }
+
+    /**
+     * {@link SQLite#delete(Table, Where)}
+     */
+    @NonNull
+    public <T> Batch delete(@NonNull Table<T> table, @NonNull Where where) {
+        mOperations.add(new BatchOperation(BatchOperation.Type.DELETE, table, null, where.where(), where.bindValues()));
+        return this;
+    }
+
+    /**
+     * Applies all operations in a single transaction
+     *
+     * @return total count of inserted, updated and deleted rows
+     */
+    public int execute() {
+        return mSQLite.applyBatch(mOperations);
+    }
+}
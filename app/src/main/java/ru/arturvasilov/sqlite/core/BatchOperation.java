@@ -0,0 +1,83 @@
+package ru.arturvasilov.sqlite.core;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentValues;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Single write operation of the {@link Batch}
+ *
+ * @author Artur Vasilov
+ */
+final class BatchOperation {
+
+    enum Type {
+        INSERT,
+        UPDATE,
+        DELETE
+    }
+
+    private final Type mType;
+
+    private final Table<?> mTable;
+
+    private final ContentValues mValues;
+
+    private final String mSelection;
+
+    private final Object[] mSelectionArgs;
+
+    BatchOperation(@NonNull Type type, @NonNull Table<?> table, @Nullable ContentValues values,
+                   @Nullable String selection, @Nullable Object[] selectionArgs) {
+        mType = type;
+        mTable = table;
+        mValues = values;
+        mSelection = selection;
+        mSelectionArgs = selectionArgs;
+    }
+
+    @NonNull
+    Type getType() {
+        return mType;
+    }
+
+    @NonNull
+    Table<?> getTable() {
+        return mTable;
+    }
+
+    @Nullable
+    ContentValues getValues() {
+        return mValues;
+    }
+
+    @Nullable
+    String getSelection() {
+        return mSelection;
+    }
+
+    @Nullable
+    Object[] getSelectionArgs() {
+        return mSelectionArgs;
+    }
+
+    @NonNull
+    ContentProviderOperation toContentProviderOperation() {
+        switch (mType) {
+            case INSERT:
+                return ContentProviderOperation.newInsert(mTable.getUri())
+                        .withValues(mValues)
+                        .build();
+            case UPDATE:
+                return ContentProviderOperation.newUpdate(mTable.getUri())
+                        .withValues(mValues)
+                        .withSelection(mSelection, Where.toStrings(mSelectionArgs))
+                        .build();
+            default:
+                return ContentProviderOperation.newDelete(mTable.getUri())
+                        .withSelection(mSelection, Where.toStrings(mSelectionArgs))
+                        .build();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package ru.arturvasilov.sqlite.core;
+
+import android.support.annotation.NonNull;
+
+import org.sqlite.database.sqlite.SQLiteStatement;
+
+/**
+ * Optional extension of the {@link Table}, which allows to insert objects without {@link android.content.ContentValues}.
+ * <p/>
+ * For such tables the library compiles statement
+ * <code>INSERT OR REPLACE INTO table(columns) VALUES(?, ...)</code> only once for all objects in the list
+ * and binds each object into it, so there is no boxing and no SQL parsing for every row.
+ * <pre>
+ * {code
+ * private static final String[] COLUMNS = {ID, NAME, AGE};
+ *
+ * public String[] getInsertColumns() {
+ *     return COLUMNS;
+ * }
+ *
+ * public void bind(SQLiteStatement statement, Person person) {
+ *     statement.bindLong(1, person.getId());
+ *     statement.bindString(2, person.getName());
+ *     statement.bindLong(3, person.getAge());
+ * }
+ * }
+ * </pre>
+ * Compiled statement is used only when SQLite works with the database directly
+ * (see {@link SQLite#initialize(android.content.Context, boolean)}), since objects can't be passed
+ * through the ContentResolver. Otherwise {@link Table#toValues(Object)} is used as usual.
+ *
+ * @author Artur Vasilov
+ */
+public interface BindableTable<T> extends Table<T> {
+
+    /**
+     * @return names of the columns for insert statement in the order of binding
+     */
+    @NonNull
+    String[] getInsertColumns();
+
+    /**
+     * Binds all fields of the object into the statement. Indexes start from 1
+     * and match the order of columns from {@link BindableTable#getInsertColumns()}.
+     * All bindings are cleared before this method is called.
+     *
+     * @param statement - compiled insert statement
+     * @param t         - object to bind
+     */
+    void bind(@NonNull SQLiteStatement statement, @NonNull T t);
+
+}
@@ -0,0 +1,22 @@
+package ru.arturvasilov.sqlite.core;
+
+import android.support.annotation.NonNull;
+
+import java.util.List;
+
+/**
+ * Estimates memory used by the cached query result, so the query cache could be limited by the size in bytes.
+ * This interface is used in {@link SQLite#enableQueryCache(int, CacheSizeEstimator)}
+ *
+ * @author Artur Vasilov
+ */
+public interface CacheSizeEstimator {
+
+    /**
+     * @param table - queried table
+     * @param rows  - result of the query
+     * @return estimated size of the result in bytes
+     */
+    int estimateSize(@NonNull Table<?> table, @NonNull List<?> rows);
+
+}
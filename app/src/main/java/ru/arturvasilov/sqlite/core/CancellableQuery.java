@@ -0,0 +1,57 @@
+package ru.arturvasilov.sqlite.core;
+
+import android.os.CancellationSignal;
+import android.support.annotation.NonNull;
+
+import java.util.List;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableEmitter;
+import io.reactivex.ObservableOnSubscribe;
+import io.reactivex.functions.Cancellable;
+
+/**
+ * Query, which is executed with {@link CancellationSignal}, so disposing of the subscription stops it in the database.
+ * It's used by the table observers and by {@link ru.arturvasilov.sqlite.rx.RxSQLite#observeQuery(Table, Where)}.
+ *
+ * @author Artur Vasilov
+ */
+public final class CancellableQuery {
+
+    private CancellableQuery() {
+    }
+
+    /**
+     * @param table - table you want to query
+     * @param where - arguments for query
+     * @return observable, which emits all rows from the table which satisfy where parameter
+     */
+    @NonNull
+    public static <T> Observable<List<T>> create(@NonNull final Table<T> table, @NonNull final Where where) {
+        return Observable.create(new ObservableOnSubscribe<List<T>>() {
+            @Override
+            public void subscribe(ObservableEmitter<List<T>> emitter) throws Exception {
+                final CancellationSignal cancellationSignal = new CancellationSignal();
+                emitter.setCancellable(new Cancellable() {
+                    @Override
+                    public void cancel() throws Exception {
+                        cancellationSignal.cancel();
+                    }
+                });
+
+                List<T> list;
+                try {
+                    list = SQLite.get().query(table, where, cancellationSignal);
+                } catch (RuntimeException e) {
+                    if (!emitter.isDisposed()) {
+                        emitter.onError(e);
+                    }
+                    return;
+                }
+                emitter.onNext(list);
+                emitter.onComplete();
+            }
+        });
+    }
+
+}
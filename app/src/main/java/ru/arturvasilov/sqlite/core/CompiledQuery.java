@@ -0,0 +1,96 @@
+package ru.arturvasilov.sqlite.core;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Immutable query, which is built once from the {@link Where} and can be executed many times
+ * with the different values of arguments.
+ * <p/>
+ * SQL of the query is fixed, so the database reuses its' prepared statement from the connection cache
+ * and only binds the new arguments for each execution. Instances are thread-safe and can be stored in static fields.
+ * <pre>
+ * {code
+ * private static final CompiledQuery<Person> BY_ID =
+ *         CompiledQuery.create(PersonTable.TABLE, Where.create().equalTo(PersonTable.ID, 0));
+ *
+ * Person person = SQLite.get().querySingle(BY_ID, id);
+ * }
+ * </pre>
+ *
+ * @author Artur Vasilov
+ */
+public final class CompiledQuery<T> {
+
+    private final Table<T> mTable;
+
+    private final Where mWhere;
+
+    private final Object[] mDefaultArgs;
+
+    private final String mSql;
+
+    private CompiledQuery(@NonNull Table<T> table, @NonNull Where where) {
+        mTable = table;
+        mWhere = where.copy();
+        Object[] values = where.bindValues();
+        mDefaultArgs = values == null ? new Object[0] : values;
+        mSql = DatabaseDataSource.buildQuerySQL(where.isDistinct(), table.getTableName(), null, where.where(),
+                where.groupBy(), where.orderBy(), where.getLimit(), where.getOffset());
+    }
+
+    /**
+     * Creates the query. Values of the where arguments are used as defaults,
+     * when the query is executed without arguments. Where can be safely changed after this call.
+     *
+     * @param table - table to query
+     * @param where - arguments for query
+     * @return compiled query
+     */
+    @NonNull
+    public static <T> CompiledQuery<T> create(@NonNull Table<T> table, @NonNull Where where) {
+        return new CompiledQuery<>(table, where);
+    }
+
+    @NonNull
+    public Table<T> getTable() {
+        return mTable;
+    }
+
+    /**
+     * @return count of arguments, which should be passed on each execution
+     */
+    public int getArgumentsCount() {
+        return mDefaultArgs.length;
+    }
+
+    /**
+     * @return copy of the where, which is never changed
+     */
+    @NonNull
+    Where getWhere() {
+        return mWhere;
+    }
+
+    @NonNull
+    String getSql() {
+        return mSql;
+    }
+
+    /**
+     * @param args - arguments for the execution or empty array to use defaults
+     * @return arguments to bind or null if the query has no arguments
+     */
+    @Nullable
+    Object[] getBindArgs(@NonNull Object[] args) {
+        if (args.length == 0) {
+            return mDefaultArgs.length == 0 ? null : mDefaultArgs.clone();
+        }
+        if (args.length != mDefaultArgs.length) {
+            throw new IllegalArgumentException("Query expects " + mDefaultArgs.length
+                    + " arguments, but " + args.length + " were passed");
+        }
+        return args;
+    }
+
+}
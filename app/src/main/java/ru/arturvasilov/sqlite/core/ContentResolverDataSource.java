@@ -0,0 +1,124 @@
+package ru.arturvasilov.sqlite.core;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.OperationApplicationException;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.CancellationSignal;
+import android.os.RemoteException;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Default {@link DataSource}, which sends all operations through the ContentResolver
+ *
+ * @author Artur Vasilov
+ */
+class ContentResolverDataSource implements DataSource {
+
+    private final Context mContext;
+
+    ContentResolverDataSource(@NonNull Context context) {
+        mContext = context;
+    }
+
+    @Nullable
+    @Override
+    public Cursor query(@NonNull Table<?> table, @Nullable String[] projection, @NonNull Where where,
+                        @Nullable CancellationSignal cancellationSignal) {
+        return mContext.getContentResolver().query(buildQueryUri(table, where), projection, where.where(),
+                Where.toStrings(where.bindValues()), where.orderBy(), cancellationSignal);
+    }
+
+    @Nullable
+    @Override
+    public Cursor query(@NonNull CompiledQuery<?> query, @Nullable Object[] args) {
+        Where where = query.getWhere();
+        return mContext.getContentResolver().query(buildQueryUri(query.getTable(), where), null, where.where(),
+                Where.toStrings(args), where.orderBy());
+    }
+
+    @Nullable
+    @Override
+    public <T> Uri insert(@NonNull Table<T> table, @NonNull T object) {
+        return mContext.getContentResolver().insert(table.getUri(), table.toValues(object));
+    }
+
+    @Override
+    public <T> int bulkInsert(@NonNull Table<T> table, @NonNull List<T> objects) {
+        ContentValues[] values = new ContentValues[objects.size()];
+        for (int i = 0; i < objects.size(); i++) {
+            values[i] = table.toValues(objects.get(i));
+        }
+        return mContext.getContentResolver().bulkInsert(table.getUri(), values);
+    }
+
+    @Override
+    public int delete(@NonNull Table<?> table, @Nullable String selection, @Nullable Object[] selectionArgs) {
+        return mContext.getContentResolver().delete(table.getUri(), selection, Where.toStrings(selectionArgs));
+    }
+
+    @Override
+    public int update(@NonNull Table<?> table, @NonNull ContentValues values,
+                      @Nullable String selection, @Nullable Object[] selectionArgs) {
+        return mContext.getContentResolver().update(table.getUri(), values, selection, Where.toStrings(selectionArgs));
+    }
+
+    @NonNull
+    @Override
+    public int[] applyBatch(@NonNull List<BatchOperation> operations) {
+        int[] counts = new int[operations.size()];
+        if (operations.isEmpty()) {
+            return counts;
+        }
+
+        ArrayList<ContentProviderOperation> providerOperations = new ArrayList<>(operations.size());
+        for (BatchOperation operation : operations) {
+            providerOperations.add(operation.toContentProviderOperation());
+        }
+        String authority = operations.get(0).getTable().getUri().getAuthority();
+
+        ContentProviderResult[] results;
+        try {
+            results = mContext.getContentResolver().applyBatch(authority, providerOperations);
+        } catch (RemoteException | OperationApplicationException e) {
+            throw new IllegalStateException("Failed to apply batch operations", e);
+        }
+        for (int i = 0; i < results.length; i++) {
+            ContentProviderResult result = results[i];
+            if (result.count != null) {
+                counts[i] = result.count;
+            } else {
+                counts[i] = result.uri == null ? 0 : 1;
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * ContentResolver has no arguments for grouping and limit, so they are passed as query parameters of the uri
+     */
+    @NonNull
+    private static Uri buildQueryUri(@NonNull Table<?> table, @NonNull Where where) {
+        Uri.Builder builder = table.getUri().buildUpon();
+        if (where.isDistinct()) {
+            builder.appendQueryParameter(SQLiteContentProvider.PARAMETER_DISTINCT, "1");
+        }
+        appendParameter(builder, SQLiteContentProvider.PARAMETER_GROUP_BY, where.groupBy());
+        appendParameter(builder, SQLiteContentProvider.PARAMETER_LIMIT, where.getLimit());
+        appendParameter(builder, SQLiteContentProvider.PARAMETER_OFFSET, where.getOffset());
+        return builder.build();
+    }
+
+    private static void appendParameter(@NonNull Uri.Builder builder, @NonNull String name, @Nullable String value) {
+        if (value != null) {
+            builder.appendQueryParameter(name, value);
+        }
+    }
+}
@@ -7,6 +7,8 @@ import java.util.List;
 /**
  * Use this interface when you want to be notified about the changes in certain table and also read all data from the table
  * This interface is used in {@link SQLite#registerObserver(Table, ContentTableObserver)}
+ * <p/>
+ * To get notified about failed queries, implement {@link QueryErrorObserver} too.
  *
  * @author Artur Vasilov
  */
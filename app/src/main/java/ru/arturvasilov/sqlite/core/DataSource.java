@@ -0,0 +1,57 @@
+package ru.arturvasilov.sqlite.core;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.CancellationSignal;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.List;
+
+/**
+ * Abstraction over the place where {@link SQLite} operations are executed.
+ * It's either ContentResolver (which routes calls to the {@link SQLiteContentProvider})
+ * or the database of the provider itself, when SQLite was initialized with direct access.
+ * <p/>
+ * Selection arguments keep their types, so the database binds them natively
+ * and only the ContentResolver converts them to strings.
+ *
+ * @author Artur Vasilov
+ */
+interface DataSource {
+
+    /**
+     * @param where              - selection, order, grouping and limit of the query
+     * @param cancellationSignal - signal to cancel the query in progress or null
+     */
+    @Nullable
+    Cursor query(@NonNull Table<?> table, @Nullable String[] projection, @NonNull Where where,
+                 @Nullable CancellationSignal cancellationSignal);
+
+    /**
+     * @param query - compiled query
+     * @param args  - arguments to bind into the query or null
+     */
+    @Nullable
+    Cursor query(@NonNull CompiledQuery<?> query, @Nullable Object[] args);
+
+    @Nullable
+    <T> Uri insert(@NonNull Table<T> table, @NonNull T object);
+
+    <T> int bulkInsert(@NonNull Table<T> table, @NonNull List<T> objects);
+
+    int delete(@NonNull Table<?> table, @Nullable String selection, @Nullable Object[] selectionArgs);
+
+    int update(@NonNull Table<?> table, @NonNull ContentValues values,
+               @Nullable String selection, @Nullable Object[] selectionArgs);
+
+    /**
+     * Applies all operations in a single transaction
+     *
+     * @return array with count of changed rows for each operation
+     */
+    @NonNull
+    int[] applyBatch(@NonNull List<BatchOperation> operations);
+
+}
@@ -0,0 +1,446 @@
+package ru.arturvasilov.sqlite.core;
+
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.CancellationSignal;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+
+import org.sqlite.database.sqlite.SQLiteCursor;
+import org.sqlite.database.sqlite.SQLiteCursorDriver;
+import org.sqlite.database.sqlite.SQLiteDatabase;
+import org.sqlite.database.sqlite.SQLiteProgram;
+import org.sqlite.database.sqlite.SQLiteQuery;
+import org.sqlite.database.sqlite.SQLiteStatement;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link DataSource} which works with the database directly in the current process.
+ * <p/>
+ * It's also used by {@link SQLiteContentProvider} for all its' operations,
+ * so both ways of access produce the same results.
+ *
+ * @author Artur Vasilov
+ */
+class DatabaseDataSource implements DataSource {
+
+    private final SQLiteHelper mSQLiteHelper;
+
+    @Nullable
+    private final ReadConnectionPool mReadConnectionPool;
+
+    /**
+     * Compiled inserts for {@link BindableTable}, keyed by the SQL, so each table and set of columns has its own.
+     * Statement is taken out of the map while it's executed, so the lock is never held while waiting for the writer.
+     */
+    private final Map<String, SQLiteStatement> mInsertStatements = new HashMap<>();
+
+    private int mInsertStatementsGeneration;
+
+    /**
+     * @param sqLiteHelper       - helper, which owns the writer connection
+     * @param readConnectionPool - pool for queries or null to run queries in the writer connection
+     */
+    DatabaseDataSource(@NonNull SQLiteHelper sqLiteHelper, @Nullable ReadConnectionPool readConnectionPool) {
+        mSQLiteHelper = sqLiteHelper;
+        mReadConnectionPool = readConnectionPool;
+    }
+
+    @Nullable
+    @Override
+    public Cursor query(@NonNull Table<?> table, @Nullable String[] projection, @NonNull Where where,
+                        @Nullable CancellationSignal cancellationSignal) {
+        return query(table.getTableName(), projection, where.isDistinct(), where.where(), where.bindValues(),
+                where.groupBy(), where.orderBy(), where.getLimit(), where.getOffset(), cancellationSignal);
+    }
+
+    @Nullable
+    @Override
+    public Cursor query(@NonNull CompiledQuery<?> query, @Nullable Object[] args) {
+        SQLiteDatabase database = getQueryDatabase();
+        return database.rawQueryWithFactory(new BindingCursorFactory(args), query.getSql(), null,
+                query.getTable().getTableName(), null);
+    }
+
+    @Nullable
+    @Override
+    public <T> Uri insert(@NonNull Table<T> table, @NonNull T object) {
+        long id;
+        if (table instanceof BindableTable) {
+            BindableTable<T> bindableTable = (BindableTable<T>) table;
+            String sql = buildInsertSQL(table.getTableName(), bindableTable.getInsertColumns());
+            int generation;
+            SQLiteStatement statement;
+            synchronized (mInsertStatements) {
+                generation = mInsertStatementsGeneration;
+                statement = mInsertStatements.remove(sql);
+            }
+            if (statement == null) {
+                statement = mSQLiteHelper.getWritableDatabase().compileStatement(sql);
+            }
+            try {
+                statement.clearBindings();
+                bindableTable.bind(statement, object);
+                id = statement.executeInsert();
+            } finally {
+                releaseInsertStatement(sql, statement, generation);
+            }
+        } else {
+            id = insert(table.getTableName(), table.toValues(object));
+        }
+        return ContentUris.withAppendedId(table.getUri(), id);
+    }
+
+    @Override
+    public <T> int bulkInsert(@NonNull Table<T> table, @NonNull List<T> objects) {
+        if (!(table instanceof BindableTable)) {
+            ContentValues[] values = new ContentValues[objects.size()];
+            for (int i = 0; i < objects.size(); i++) {
+                values[i] = table.toValues(objects.get(i));
+            }
+            return bulkInsert(table.getTableName(), values);
+        }
+
+        BindableTable<T> bindableTable = (BindableTable<T>) table;
+        SQLiteDatabase database = mSQLiteHelper.getWritableDatabase();
+        int numInserted = 0;
+        // statement is compiled before the transaction, so the compile error can't leave the transaction open
+        SQLiteStatement statement = compileInsert(bindableTable);
+        try {
+            database.beginTransaction();
+            try {
+                for (T object : objects) {
+                    statement.clearBindings();
+                    bindableTable.bind(statement, object);
+                    if (statement.executeInsert() > 0) {
+                        numInserted++;
+                    }
+                }
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+            }
+        } finally {
+            statement.close();
+        }
+        return numInserted;
+    }
+
+    @Override
+    public int delete(@NonNull Table<?> table, @Nullable String selection, @Nullable Object[] selectionArgs) {
+        return delete(table.getTableName(), selection, selectionArgs);
+    }
+
+    @Override
+    public int update(@NonNull Table<?> table, @NonNull ContentValues values,
+                      @Nullable String selection, @Nullable Object[] selectionArgs) {
+        return update(table.getTableName(), values, selection, selectionArgs);
+    }
+
+    @NonNull
+    @Override
+    public int[] applyBatch(@NonNull List<BatchOperation> operations) {
+        int[] counts = new int[operations.size()];
+        SQLiteDatabase database = mSQLiteHelper.getWritableDatabase();
+        database.beginTransaction();
+        try {
+            for (int i = 0; i < operations.size(); i++) {
+                BatchOperation operation = operations.get(i);
+                String table = operation.getTable().getTableName();
+                switch (operation.getType()) {
+                    case INSERT:
+                        //noinspection ConstantConditions
+                        counts[i] = insert(table, operation.getValues()) > 0 ? 1 : 0;
+                        break;
+                    case UPDATE:
+                        //noinspection ConstantConditions
+                        counts[i] = update(table, operation.getValues(),
+                                operation.getSelection(), operation.getSelectionArgs());
+                        break;
+                    case DELETE:
+                        counts[i] = delete(table, operation.getSelection(), operation.getSelectionArgs());
+                        break;
+                }
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+        return counts;
+    }
+
+    @NonNull
+    SQLiteDatabase getWritableDatabase() {
+        return mSQLiteHelper.getWritableDatabase();
+    }
+
+    /**
+     * Closes the writer and all read connections, they are opened again on the next operation
+     */
+    void close() {
+        synchronized (mInsertStatements) {
+            for (SQLiteStatement statement : mInsertStatements.values()) {
+                statement.close();
+            }
+            mInsertStatements.clear();
+            mInsertStatementsGeneration++;
+        }
+        if (mReadConnectionPool != null) {
+            mReadConnectionPool.close();
+        }
+        mSQLiteHelper.close();
+    }
+
+    /**
+     * Queries inside the transaction must see its' uncommitted changes, so they always use the writer connection
+     *
+     * @return connection for the query
+     */
+    @NonNull
+    SQLiteDatabase getQueryDatabase() {
+        SQLiteDatabase writer = mSQLiteHelper.getWritableDatabase();
+        if (mReadConnectionPool == null || writer.inTransaction()) {
+            return writer;
+        }
+        return mReadConnectionPool.getConnection();
+    }
+
+    @NonNull
+    Cursor query(@NonNull String table, @Nullable String[] projection, boolean distinct,
+                 @Nullable String selection, @Nullable Object[] selectionArgs, @Nullable String groupBy,
+                 @Nullable String orderBy, @Nullable String limit, @Nullable String offset,
+                 @Nullable CancellationSignal cancellationSignal) {
+        SQLiteDatabase database = getQueryDatabase();
+        String sql = buildQuerySQL(distinct, table, projection, selection, groupBy, orderBy, limit, offset);
+        return database.rawQueryWithFactory(new BindingCursorFactory(selectionArgs), sql, null, table,
+                cancellationSignal);
+    }
+
+    long insert(@NonNull String table, @NonNull ContentValues values) {
+        SQLiteDatabase database = mSQLiteHelper.getWritableDatabase();
+        return database.insertWithOnConflict(table, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    int bulkInsert(@NonNull String table, @NonNull ContentValues[] values) {
+        SQLiteDatabase database = mSQLiteHelper.getWritableDatabase();
+        int numInserted = 0;
+        database.beginTransaction();
+        // statement is compiled once and reused while rows have the same set of columns
+        SQLiteStatement statement = null;
+        String[] columns = null;
+        try {
+            for (ContentValues contentValues : values) {
+                long id;
+                if (contentValues.size() == 0) {
+                    id = database.insertWithOnConflict(table, null, contentValues, SQLiteDatabase.CONFLICT_REPLACE);
+                } else {
+                    if (statement == null || !hasSameColumns(contentValues, columns)) {
+                        if (statement != null) {
+                            statement.close();
+                        }
+                        columns = contentValues.keySet().toArray(new String[contentValues.size()]);
+                        statement = database.compileStatement(buildInsertSQL(table, columns));
+                    }
+                    statement.clearBindings();
+                    for (int i = 0; i < columns.length; i++) {
+                        bindValue(statement, i + 1, contentValues.get(columns[i]));
+                    }
+                    id = statement.executeInsert();
+                }
+                if (id > 0) {
+                    numInserted++;
+                }
+            }
+            database.setTransactionSuccessful();
+        } finally {
+            if (statement != null) {
+                statement.close();
+            }
+            database.endTransaction();
+        }
+        return numInserted;
+    }
+
+    int delete(@NonNull String table, @Nullable String selection, @Nullable Object[] selectionArgs) {
+        String sql = "DELETE FROM " + table + (TextUtils.isEmpty(selection) ? "" : " WHERE " + selection);
+        return executeUpdateDelete(sql, selectionArgs);
+    }
+
+    int update(@NonNull String table, @NonNull ContentValues values,
+               @Nullable String selection, @Nullable Object[] selectionArgs) {
+        if (values.size() == 0) {
+            throw new IllegalArgumentException("Empty values");
+        }
+
+        StringBuilder sql = new StringBuilder()
+                .append("UPDATE ")
+                .append(table)
+                .append(" SET ");
+        int argsCount = selectionArgs == null ? 0 : selectionArgs.length;
+        Object[] bindArgs = new Object[values.size() + argsCount];
+        int index = 0;
+        for (String column : values.keySet()) {
+            sql.append(index > 0 ? ", " : "").append(column).append(" = ?");
+            bindArgs[index++] = values.get(column);
+        }
+        if (selectionArgs != null) {
+            System.arraycopy(selectionArgs, 0, bindArgs, index, argsCount);
+        }
+        if (!TextUtils.isEmpty(selection)) {
+            sql.append(" WHERE ").append(selection);
+        }
+        return executeUpdateDelete(sql.toString(), bindArgs);
+    }
+
+    /**
+     * Binds value into the program according to its' type
+     *
+     * @param program - compiled statement or query
+     * @param index   - index of the argument, starting from 1
+     * @param value   - value to bind
+     */
+    static void bindValue(@NonNull SQLiteProgram program, int index, @Nullable Object value) {
+        if (value == null) {
+            program.bindNull(index);
+        } else if (value instanceof Long || value instanceof Integer
+                || value instanceof Short || value instanceof Byte) {
+            program.bindLong(index, ((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            program.bindDouble(index, ((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            program.bindLong(index, (Boolean) value ? 1 : 0);
+        } else if (value instanceof byte[]) {
+            program.bindBlob(index, (byte[]) value);
+        } else {
+            program.bindString(index, value.toString());
+        }
+    }
+
+    private int executeUpdateDelete(@NonNull String sql, @Nullable Object[] bindArgs) {
+        SQLiteStatement statement = mSQLiteHelper.getWritableDatabase().compileStatement(sql);
+        try {
+            bindValues(statement, bindArgs);
+            return statement.executeUpdateDelete();
+        } finally {
+            statement.close();
+        }
+    }
+
+    private static void bindValues(@NonNull SQLiteProgram program, @Nullable Object[] values) {
+        if (values != null) {
+            for (int i = 0; i < values.length; i++) {
+                bindValue(program, i + 1, values[i]);
+            }
+        }
+    }
+
+    @NonNull
+    static String buildQuerySQL(boolean distinct, @NonNull String table, @Nullable String[] projection,
+                                @Nullable String selection, @Nullable String groupBy, @Nullable String orderBy,
+                                @Nullable String limit, @Nullable String offset) {
+        StringBuilder builder = new StringBuilder(distinct ? "SELECT DISTINCT " : "SELECT ");
+        if (projection == null || projection.length == 0) {
+            builder.append("*");
+        } else {
+            builder.append(TextUtils.join(", ", projection));
+        }
+        builder.append(" FROM ").append(table);
+        if (!TextUtils.isEmpty(selection)) {
+            builder.append(" WHERE ").append(selection);
+        }
+        if (!TextUtils.isEmpty(groupBy)) {
+            builder.append(" GROUP BY ").append(groupBy);
+        }
+        if (!TextUtils.isEmpty(orderBy)) {
+            builder.append(" ORDER BY ").append(orderBy);
+        }
+        if (!TextUtils.isEmpty(limit)) {
+            builder.append(" LIMIT ").append(limit);
+        } else if (!TextUtils.isEmpty(offset)) {
+            // SQLite doesn't accept OFFSET without LIMIT, negative limit means no limit
+            builder.append(" LIMIT -1");
+        }
+        if (!TextUtils.isEmpty(offset)) {
+            builder.append(" OFFSET ").append(offset);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns the statement to the cache, unless the cache already has another one for the same SQL
+     * or the database was closed while the statement was executed
+     */
+    private void releaseInsertStatement(@NonNull String sql, @NonNull SQLiteStatement statement, int generation) {
+        synchronized (mInsertStatements) {
+            if (generation == mInsertStatementsGeneration && !mInsertStatements.containsKey(sql)) {
+                mInsertStatements.put(sql, statement);
+                return;
+            }
+        }
+        statement.close();
+    }
+
+    @NonNull
+    private SQLiteStatement compileInsert(@NonNull BindableTable<?> table) {
+        SQLiteDatabase database = mSQLiteHelper.getWritableDatabase();
+        return database.compileStatement(buildInsertSQL(table.getTableName(), table.getInsertColumns()));
+    }
+
+    @NonNull
+    private static String buildInsertSQL(@NonNull String table, @NonNull String[] columns) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("INSERT OR REPLACE INTO ")
+                .append(table)
+                .append("(");
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(columns[i]);
+        }
+        builder.append(") VALUES(");
+        for (int i = 0; i < columns.length; i++) {
+            builder.append(i > 0 ? ", ?" : "?");
+        }
+        builder.append(")");
+        return builder.toString();
+    }
+
+    private static boolean hasSameColumns(@NonNull ContentValues values, @NonNull String[] columns) {
+        if (values.size() != columns.length) {
+            return false;
+        }
+        for (String column : columns) {
+            if (!values.containsKey(column)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Factory which binds selection arguments into the query natively according to their types
+     */
+    private static class BindingCursorFactory implements SQLiteDatabase.CursorFactory {
+
+        private final Object[] mSelectionArgs;
+
+        BindingCursorFactory(@Nullable Object[] selectionArgs) {
+            mSelectionArgs = selectionArgs;
+        }
+
+        @Override
+        public Cursor newCursor(SQLiteDatabase database, SQLiteCursorDriver driver, String editTable,
+                                SQLiteQuery query) {
+            bindValues(query, mSelectionArgs);
+            return new SQLiteCursor(driver, editTable, query);
+        }
+    }
+
+}
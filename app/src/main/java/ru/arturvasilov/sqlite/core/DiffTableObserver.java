@@ -0,0 +1,38 @@
+package ru.arturvasilov.sqlite.core;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Use this interface when you observe the content of the table, but want to get only the difference
+ * with previous content instead of the full list (e.g. to update only changed items in UI).
+ * This interface is used in {@link SQLite#registerObserver(Table, DiffTableObserver, Where)}
+ * <p/>
+ * Difference is calculated in the background thread and delivered in the main thread.
+ * If content of the table hasn't changed, observer isn't called at all.
+ * <p/>
+ * To get notified about failed queries, implement {@link QueryErrorObserver} too.
+ *
+ * @author Artur Vasilov
+ */
+public interface DiffTableObserver<T> {
+
+    /**
+     * Identity of the item, which is used to match old and new versions of the same row.
+     * Keys must be unique within the table and have proper equals and hashCode implementations.
+     * Items with the same key are compared with {@link Object#equals(Object)} to detect changes.
+     *
+     * @param item - item from the table
+     * @return key of the item, e.g. its' primary key
+     */
+    @NonNull
+    Object getKey(@NonNull T item);
+
+    /**
+     * This method notifies you about the changes in the table content. The first call after registration
+     * contains all the rows as inserted.
+     *
+     * @param diff - difference between previous and current content of the table
+     */
+    void onTableChanged(@NonNull TableDiff<T> diff);
+
+}
@@ -0,0 +1,112 @@
+package ru.arturvasilov.sqlite.core;
+
+import android.content.Context;
+import android.net.Uri;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.LruCache;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bounded map from the primary key to the object for each {@link KeyedTable}.
+ * <p/>
+ * Objects of the table are removed when the table is written through {@link SQLite} or when table uri is notified.
+ * Same as in {@link QueryCache}, object is stored only if the table wasn't changed while it was queried.
+ *
+ * @author Artur Vasilov
+ */
+final class IdentityMap {
+
+    private final Context mContext;
+
+    private final int mMaxEntriesPerTable;
+
+    private final Map<Uri, LruCache<String, Object>> mTables = new HashMap<>();
+
+    private final Map<Uri, Long> mTableVersions = new HashMap<>();
+
+    private final Map<Uri, DatabaseObserver> mTableObservers = new HashMap<>();
+
+    IdentityMap(@NonNull Context context, int maxEntriesPerTable) {
+        mContext = context;
+        mMaxEntriesPerTable = maxEntriesPerTable;
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    synchronized <T> T get(@NonNull KeyedTable<T> table, @NonNull Object key) {
+        LruCache<String, Object> objects = mTables.get(table.getUri());
+        return objects == null ? null : (T) objects.get(String.valueOf(key));
+    }
+
+    /**
+     * @return version of the table, which should be passed to {@link IdentityMap#put(KeyedTable, Object, long)}
+     */
+    synchronized long getVersion(@NonNull Table<?> table) {
+        Long version = mTableVersions.get(table.getUri());
+        return version == null ? 0 : version;
+    }
+
+    /**
+     * Stores the object, if the table wasn't invalidated since the query started
+     *
+     * @param version - version of the table taken before the query
+     */
+    synchronized <T> void put(@NonNull KeyedTable<T> table, @NonNull T object, long version) {
+        if (getVersion(table) != version) {
+            return;
+        }
+        Uri uri = table.getUri();
+        LruCache<String, Object> objects = mTables.get(uri);
+        if (objects == null) {
+            objects = new LruCache<>(mMaxEntriesPerTable);
+            mTables.put(uri, objects);
+            observeTable(uri);
+        }
+        objects.put(String.valueOf(table.getKey(object)), object);
+    }
+
+    void invalidate(@NonNull Table<?> table) {
+        invalidate(table.getUri());
+    }
+
+    synchronized void invalidate(@NonNull Uri uri) {
+        Long version = mTableVersions.get(uri);
+        mTableVersions.put(uri, version == null ? 1 : version + 1);
+        LruCache<String, Object> objects = mTables.get(uri);
+        if (objects != null) {
+            objects.evictAll();
+        }
+    }
+
+    /**
+     * Removes all objects and stops observing tables
+     */
+    synchronized void clear() {
+        for (DatabaseObserver observer : mTableObservers.values()) {
+            mContext.getContentResolver().unregisterContentObserver(observer);
+        }
+        mTableObservers.clear();
+        mTables.clear();
+    }
+
+    /**
+     * Tracks notifications from other sources than {@link SQLite}, e.g. from the other process
+     */
+    private void observeTable(@NonNull final Uri uri) {
+        if (mTableObservers.containsKey(uri)) {
+            return;
+        }
+        DatabaseObserver observer = new DatabaseObserver() {
+            @Override
+            public void onChange(boolean selfChange) {
+                invalidate(uri);
+            }
+        };
+        mTableObservers.put(uri, observer);
+        mContext.getContentResolver().registerContentObserver(uri, false, observer);
+    }
+
+}
@@ -0,0 +1,47 @@
+package ru.arturvasilov.sqlite.core;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Optional extension of the {@link Table} with the single-column primary key,
+ * which allows to get objects with {@link SQLite#getById(KeyedTable, Object)}
+ * and {@link SQLite#getByIds(KeyedTable, java.util.Collection)}.
+ * <pre>
+ * {code
+ * public void onCreate(SQLiteDatabase database) {
+ *     TableBuilder.create(this)
+ *             .intColumn(ID)
+ *             .textColumn(NAME)
+ *             .primaryKey(ID)
+ *             .execute(database);
+ * }
+ *
+ * public String getKeyColumn() {
+ *     return ID;
+ * }
+ *
+ * public Object getKey(Person person) {
+ *     return person.getId();
+ * }
+ * }
+ * </pre>
+ *
+ * @author Artur Vasilov
+ */
+public interface KeyedTable<T> extends Table<T> {
+
+    /**
+     * @return name of the primary key column,
+     * which is passed to {@link ru.arturvasilov.sqlite.utils.TableBuilder#primaryKey(String...)}
+     */
+    @NonNull
+    String getKeyColumn();
+
+    /**
+     * @param t - object of this table
+     * @return value of the primary key for the object
+     */
+    @NonNull
+    Object getKey(@NonNull T t);
+
+}
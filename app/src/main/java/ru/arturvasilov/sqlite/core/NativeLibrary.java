@@ -0,0 +1,84 @@
+package ru.arturvasilov.sqlite.core;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Loader of the native SQLite library.
+ * <p/>
+ * Loading takes noticeable time, so it's started in the background as soon as the library is initialized
+ * and the first access to the database waits for it only if it's not finished yet.
+ *
+ * @author Artur Vasilov
+ */
+final class NativeLibrary {
+
+    private static final String LIBRARY_NAME = "sqliteX";
+
+    private static final AtomicBoolean sIsStarted = new AtomicBoolean();
+
+    private static final CountDownLatch sLoadedLatch = new CountDownLatch(1);
+
+    private static volatile Throwable sError;
+
+    private NativeLibrary() {
+    }
+
+    /**
+     * Starts loading in the background thread, if it wasn't started yet
+     */
+    static void loadAsync() {
+        if (sIsStarted.compareAndSet(false, true)) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    load();
+                }
+            }, "SQLite-library-loader");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Loads the library in the current thread or waits until it's loaded in the background
+     */
+    static void await() {
+        if (sIsStarted.compareAndSet(false, true)) {
+            load();
+        } else {
+            boolean isInterrupted = false;
+            while (true) {
+                try {
+                    sLoadedLatch.await();
+                    break;
+                } catch (InterruptedException e) {
+                    isInterrupted = true;
+                }
+            }
+            if (isInterrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        Throwable error = sError;
+        if (error != null) {
+            throw new IllegalStateException("Failed to load native library " + LIBRARY_NAME, error);
+        }
+    }
+
+    static boolean isLoaded() {
+        return sLoadedLatch.getCount() == 0 && sError == null;
+    }
+
+    private static void load() {
+        try {
+            System.loadLibrary(LIBRARY_NAME);
+        } catch (Throwable e) {
+            sError = e;
+        } finally {
+            sLoadedLatch.countDown();
+        }
+    }
+
+}
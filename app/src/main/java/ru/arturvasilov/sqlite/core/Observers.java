@@ -1,62 +1,146 @@
 package ru.arturvasilov.sqlite.core;
 
 import android.content.Context;
-import android.database.ContentObserver;
+import android.net.Uri;
 import android.support.annotation.NonNull;
-import android.support.v4.util.Pair;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+import android.util.Log;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
+import io.reactivex.Observable;
 import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.Disposable;
 import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
 import io.reactivex.schedulers.Schedulers;
-import ru.arturvasilov.sqlite.rx.RxSQLite;
 
 /**
+ * Registry of the table observers.
+ * <p/>
+ * Only one system {@link android.database.ContentObserver} is registered for each notification uri,
+ * and it dispatches changes to all the subscriptions for this uri. Subscriptions are identified by the observer
+ * instance and the uri, so the same observer can watch several tables, and registering it again
+ * for the same table replaces its' previous subscription to this table.
+ * <p/>
+ * All methods are thread-safe and take constant time.
+ *
  * @author Artur Vasilov
  */
 final class Observers {
 
-    private final List<Pair<Object, ContentObserver>> mObservers = new ArrayList<>();
+    private static final String TAG = "SQLite";
+
+    /**
+     * Names starting with sqlite_ are reserved by SQLite, so there is no table with such uri
+     */
+    private static final String ROWS_PATH = "sqlite_rows";
+    private static final String ROW_IDS_PARAMETER = "ids";
+
+    /**
+     * Notification uri becomes too long with a large count of ids, so in this case rows are considered unknown
+     */
+    private static final int MAX_ROW_IDS_IN_NOTIFICATION = 500;
+
+    private final Object mLock = new Object();
+
+    private final Map<Uri, UriObserver> mUriObservers = new ConcurrentHashMap<>();
+
+    private final Map<Object, Map<Uri, Subscription>> mSubscriptions = new IdentityHashMap<>();
+
+    private final Map<String, SharedQuerySubscription<?>> mSharedQueries = new HashMap<>();
 
     public <T> void registerObserver(@NonNull Context context, @NonNull Table<T> table,
-                                     @NonNull final BasicTableObserver observer) {
-        ContentObserver contentObserver = new DatabaseObserver() {
+                                     @NonNull final BasicTableObserver observer, long debounceMillis) {
+        Subscription subscription = new DebounceSubscription(debounceMillis) {
             @Override
-            public void onChange(boolean selfChange) {
-                super.onChange(selfChange);
-                MainHandler.getHandler().post(new Runnable() {
-                    @Override
-                    public void run() {
-                        observer.onTableChanged();
-                    }
-                });
+            protected void dispatch() {
+                observer.onTableChanged();
             }
         };
-        context.getContentResolver().registerContentObserver(table.getUri(), false, contentObserver);
-        mObservers.add(new Pair<Object, ContentObserver>(observer, contentObserver));
+        synchronized (mLock) {
+            unsubscribeLocked(context, observer, table.getUri());
+            subscribeLocked(context, observer, table.getUri(), subscription);
+        }
+    }
+
+    /**
+     * Observers with the same table, query and debounce window share the single {@link SharedQuerySubscription},
+     * so the table is queried only once per change and the result is delivered to all of them.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> void registerObserver(@NonNull Context context, @NonNull Table<T> table,
+                                     @NonNull ContentTableObserver<T> observer, @NonNull Where where,
+                                     long debounceMillis) {
+        String key = QueryCache.createKey(table, where) + "\n" + debounceMillis;
+        synchronized (mLock) {
+            unsubscribeLocked(context, observer, table.getUri());
+            SharedQuerySubscription<T> subscription = (SharedQuerySubscription<T>) mSharedQueries.get(key);
+            if (subscription == null) {
+                subscription = new SharedQuerySubscription<>(key, table, where, debounceMillis);
+                mSharedQueries.put(key, subscription);
+                subscribeLocked(context, observer, table.getUri(), subscription);
+            } else {
+                putSubscriptionLocked(observer, subscription);
+            }
+            subscription.mObservers.add(observer);
+        }
     }
 
     public <T> void registerObserver(@NonNull Context context, @NonNull final Table<T> table,
-                                     @NonNull final ContentTableObserver<T> observer, @NonNull final Where where) {
-        ContentObserver contentObserver = new DatabaseObserver() {
+                                     @NonNull final DiffTableObserver<T> observer, @NonNull final Where where,
+                                     long debounceMillis) {
+        Subscription subscription = new QuerySubscription<TableDiff<T>>(debounceMillis) {
+
+            private volatile List<T> mLastItems = Collections.emptyList();
+
+            @NonNull
             @Override
-            public void onChange(boolean selfChange) {
-                super.onChange(selfChange);
-                RxSQLite.get().query(table, where)
-                        .subscribeOn(Schedulers.io())
-                        .observeOn(AndroidSchedulers.mainThread())
-                        .subscribe(new Consumer<List<T>>() {
+            protected Observable<TableDiff<T>> query() {
+                return CancellableQuery.create(table, where)
+                        .map(new Function<List<T>, TableDiff<T>>() {
                             @Override
-                            public void accept(List<T> list) throws Exception {
-                                observer.onTableChanged(list);
+                            public TableDiff<T> apply(List<T> list) throws Exception {
+                                return TableDiff.calculate(mLastItems, list, observer);
                             }
                         });
             }
+
+            @Override
+            protected void deliver(@NonNull TableDiff<T> diff) {
+                mLastItems = diff.getItems();
+                if (!diff.isEmpty()) {
+                    observer.onTableChanged(diff);
+                }
+            }
+
+            @Override
+            protected void deliverError(@NonNull Throwable error) {
+                notifyQueryError(observer, error);
+            }
         };
-        context.getContentResolver().registerContentObserver(table.getUri(), false, contentObserver);
-        mObservers.add(new Pair<Object, ContentObserver>(observer, contentObserver));
+        synchronized (mLock) {
+            unsubscribeLocked(context, observer, table.getUri());
+            subscribeLocked(context, observer, table.getUri(), subscription);
+        }
+    }
+
+    public <T> void registerObserver(@NonNull Context context, @NonNull Table<T> table,
+                                     @NonNull RowTableObserver observer) {
+        Subscription subscription = new RowsSubscription(observer);
+        synchronized (mLock) {
+            unsubscribeLocked(context, observer, getRowsUri(table));
+            subscribeLocked(context, observer, getRowsUri(table), subscription);
+        }
     }
 
     public void unregisterObserver(@NonNull Context context, @NonNull BasicTableObserver observer) {
@@ -67,17 +151,438 @@ final class Observers {
         unregisterObserver(context, (Object) observer);
     }
 
-    private void unregisterObserver(@NonNull Context context, @NonNull Object object) {
-        int index = -1;
-        for (int i = 0; i < mObservers.size(); i++) {
-            if (mObservers.get(i).first == object) {
-                index = i;
+    public <T> void unregisterObserver(@NonNull Context context, @NonNull DiffTableObserver<T> observer) {
+        unregisterObserver(context, (Object) observer);
+    }
+
+    public void unregisterObserver(@NonNull Context context, @NonNull RowTableObserver observer) {
+        unregisterObserver(context, (Object) observer);
+    }
+
+    /**
+     * Cancels all subscriptions and unregisters all system observers, e.g. when the instance of SQLite is dropped
+     */
+    public void unregisterAll(@NonNull Context context) {
+        synchronized (mLock) {
+            for (Object observer : new ArrayList<>(mSubscriptions.keySet())) {
+                unregisterObserver(context, observer);
+            }
+        }
+    }
+
+    /**
+     * @return true if any {@link RowTableObserver} is registered for the table in this process
+     */
+    public boolean hasRowObservers(@NonNull Table<?> table) {
+        return mUriObservers.containsKey(getRowsUri(table));
+    }
+
+    /**
+     * @param table  - changed table
+     * @param rowIds - ids of changed rows or null if they are unknown
+     * @return uri for row-level notification about changes in the table
+     */
+    @NonNull
+    public static Uri getRowsUri(@NonNull Table<?> table, @Nullable Set<Long> rowIds) {
+        Uri rowsUri = getRowsUri(table);
+        if (rowIds == null || rowIds.size() > MAX_ROW_IDS_IN_NOTIFICATION) {
+            return rowsUri;
+        }
+        return rowsUri.buildUpon()
+                .appendQueryParameter(ROW_IDS_PARAMETER, TextUtils.join(",", rowIds))
+                .build();
+    }
+
+    /**
+     * Rows uri must not be a descendant of the table uri, otherwise row observers are also notified
+     * about each table-level notification, which doesn't have ids of rows
+     */
+    @NonNull
+    private static Uri getRowsUri(@NonNull Table<?> table) {
+        Uri tableUri = table.getUri();
+        Uri.Builder builder = tableUri.buildUpon().path(ROWS_PATH);
+        for (String segment : tableUri.getPathSegments()) {
+            builder.appendPath(segment);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Failed query must not be lost silently, so it's logged if the observer can't handle it
+     */
+    private static void notifyQueryError(@NonNull Object observer, @NonNull Throwable error) {
+        if (observer instanceof QueryErrorObserver) {
+            ((QueryErrorObserver) observer).onQueryError(error);
+        } else {
+            Log.e(TAG, "Failed to query the table for the observer " + observer, error);
+        }
+    }
+
+    @Nullable
+    private static Set<Long> parseRowIds(@NonNull Uri uri) {
+        String ids = uri.getQueryParameter(ROW_IDS_PARAMETER);
+        if (ids == null) {
+            return null;
+        }
+        Set<Long> rowIds = new HashSet<>();
+        for (String id : ids.split(",")) {
+            if (!id.isEmpty()) {
+                rowIds.add(Long.parseLong(id));
+            }
+        }
+        return rowIds;
+    }
+
+    /**
+     * Removes all subscriptions of the observer, whatever tables it watches
+     */
+    private void unregisterObserver(@NonNull Context context, @NonNull Object observer) {
+        synchronized (mLock) {
+            Map<Uri, Subscription> subscriptions = mSubscriptions.remove(observer);
+            if (subscriptions != null) {
+                for (Subscription subscription : subscriptions.values()) {
+                    removeSubscriptionLocked(context, observer, subscription);
+                }
+            }
+        }
+    }
+
+    private void subscribeLocked(@NonNull Context context, @NonNull Object observer,
+                                 @NonNull Uri uri, @NonNull Subscription subscription) {
+        UriObserver uriObserver = mUriObservers.get(uri);
+        if (uriObserver == null) {
+            uriObserver = new UriObserver();
+            mUriObservers.put(uri, uriObserver);
+            context.getContentResolver().registerContentObserver(uri, false, uriObserver);
+        }
+        subscription.mUri = uri;
+        uriObserver.mSubscriptions.add(subscription);
+        putSubscriptionLocked(observer, subscription);
+    }
+
+    private void putSubscriptionLocked(@NonNull Object observer, @NonNull Subscription subscription) {
+        Map<Uri, Subscription> subscriptions = mSubscriptions.get(observer);
+        if (subscriptions == null) {
+            subscriptions = new HashMap<>();
+            mSubscriptions.put(observer, subscriptions);
+        }
+        subscriptions.put(subscription.mUri, subscription);
+    }
+
+    /**
+     * Removes the subscription of the observer to the single uri, subscriptions to other uris are kept
+     */
+    private void unsubscribeLocked(@NonNull Context context, @NonNull Object observer, @NonNull Uri uri) {
+        Map<Uri, Subscription> subscriptions = mSubscriptions.get(observer);
+        if (subscriptions == null) {
+            return;
+        }
+        Subscription subscription = subscriptions.remove(uri);
+        if (subscriptions.isEmpty()) {
+            mSubscriptions.remove(observer);
+        }
+        if (subscription != null) {
+            removeSubscriptionLocked(context, observer, subscription);
+        }
+    }
+
+    private void removeSubscriptionLocked(@NonNull Context context, @NonNull Object observer,
+                                          @NonNull Subscription subscription) {
+        if (subscription instanceof SharedQuerySubscription) {
+            SharedQuerySubscription<?> sharedSubscription = (SharedQuerySubscription<?>) subscription;
+            sharedSubscription.mObservers.remove(observer);
+            if (!sharedSubscription.mObservers.isEmpty()) {
+                return;
+            }
+            mSharedQueries.remove(sharedSubscription.mKey);
+        }
+
+        subscription.cancel();
+        UriObserver uriObserver = mUriObservers.get(subscription.mUri);
+        if (uriObserver != null) {
+            uriObserver.mSubscriptions.remove(subscription);
+            if (uriObserver.mSubscriptions.isEmpty()) {
+                mUriObservers.remove(subscription.mUri);
+                context.getContentResolver().unregisterContentObserver(uriObserver);
+            }
+        }
+    }
+
+    /**
+     * System observer for the single uri, which dispatches changes to all subscriptions in the main thread
+     */
+    private static class UriObserver extends DatabaseObserver {
+
+        private final Set<Subscription> mSubscriptions =
+                Collections.newSetFromMap(new ConcurrentHashMap<Subscription, Boolean>());
+
+        @Override
+        public void onChange(boolean selfChange) {
+            onChange(selfChange, null);
+        }
+
+        @Override
+        public void onChange(boolean selfChange, Uri uri) {
+            for (Subscription subscription : mSubscriptions) {
+                subscription.onChange(uri);
+            }
+        }
+    }
+
+    /**
+     * Single registration in the {@link UriObserver}. Changes come in the main thread.
+     */
+    private abstract static class Subscription {
+
+        private Uri mUri;
+
+        private volatile boolean mIsCancelled;
+
+        protected abstract void onChange(@Nullable Uri uri);
+
+        void cancel() {
+            mIsCancelled = true;
+        }
+
+        boolean isCancelled() {
+            return mIsCancelled;
+        }
+    }
+
+    /**
+     * Subscription for row-level notifications. All changes, which come before the dispatch in the main thread,
+     * are merged into the single callback.
+     */
+    private static class RowsSubscription extends Subscription {
+
+        private final RowTableObserver mObserver;
+
+        private final Set<Long> mChangedRows = new HashSet<>();
+
+        private boolean mIsTableChanged;
+
+        private final Runnable mDispatchRunnable = new Runnable() {
+            @Override
+            public void run() {
+                if (isCancelled()) {
+                    return;
+                }
+                if (mIsTableChanged) {
+                    mObserver.onTableChanged();
+                } else if (!mChangedRows.isEmpty()) {
+                    mObserver.onRowsChanged(new HashSet<>(mChangedRows));
+                }
+                mIsTableChanged = false;
+                mChangedRows.clear();
+            }
+        };
+
+        RowsSubscription(@NonNull RowTableObserver observer) {
+            mObserver = observer;
+        }
+
+        @Override
+        void cancel() {
+            super.cancel();
+            MainHandler.getHandler().removeCallbacks(mDispatchRunnable);
+        }
+
+        @Override
+        protected void onChange(@Nullable Uri uri) {
+            Set<Long> rowIds = uri == null ? null : parseRowIds(uri);
+            if (rowIds == null) {
+                mIsTableChanged = true;
+            } else {
+                mChangedRows.addAll(rowIds);
+            }
+            MainHandler.getHandler().removeCallbacks(mDispatchRunnable);
+            MainHandler.getHandler().post(mDispatchRunnable);
+        }
+    }
+
+    /**
+     * Subscription which coalesces all changes during the window into the single
+     * {@link DebounceSubscription#dispatch()} call.
+     * Dispatch is called in the main thread when the window passes since the first pending change,
+     * so the steady stream of changes can't postpone it forever. If window is zero, each change is dispatched.
+     */
+    private abstract static class DebounceSubscription extends Subscription {
+
+        private final long mDebounceMillis;
+
+        private boolean mIsDispatchPending;
+
+        private final Runnable mDispatchRunnable = new Runnable() {
+            @Override
+            public void run() {
+                mIsDispatchPending = false;
+                if (!isCancelled()) {
+                    dispatch();
+                }
+            }
+        };
+
+        DebounceSubscription(long debounceMillis) {
+            mDebounceMillis = debounceMillis;
+        }
+
+        @Override
+        protected void onChange(@Nullable Uri uri) {
+            if (mDebounceMillis > 0) {
+                if (!mIsDispatchPending) {
+                    mIsDispatchPending = true;
+                    MainHandler.getHandler().postDelayed(mDispatchRunnable, mDebounceMillis);
+                }
+            } else {
+                MainHandler.getHandler().post(mDispatchRunnable);
+            }
+        }
+
+        @Override
+        void cancel() {
+            super.cancel();
+            MainHandler.getHandler().removeCallbacks(mDispatchRunnable);
+        }
+
+        protected abstract void dispatch();
+    }
+
+    /**
+     * Subscription which queries the table in the background after the change and delivers the result in the main thread.
+     * <p/>
+     * Queries are latest-only: no more than one query is running at the same time and if table changes
+     * during the query, its' stale result is dropped and table is queried once again.
+     * Running query is cancelled together with the subscription.
+     */
+    private abstract static class QuerySubscription<R> extends DebounceSubscription {
+
+        private boolean mIsQueryRunning;
+        private boolean mIsQueryPending;
+
+        private volatile Disposable mQuery;
+
+        QuerySubscription(long debounceMillis) {
+            super(debounceMillis);
+        }
+
+        @Override
+        void cancel() {
+            super.cancel();
+            Disposable query = mQuery;
+            if (query != null) {
+                query.dispose();
+            }
+        }
+
+        @Override
+        protected void dispatch() {
+            if (mIsQueryRunning) {
+                mIsQueryPending = true;
+                return;
+            }
+            mIsQueryRunning = true;
+            mQuery = query()
+                    .subscribeOn(Schedulers.io())
+                    .observeOn(AndroidSchedulers.mainThread())
+                    .subscribe(new Consumer<R>() {
+                        @Override
+                        public void accept(R result) throws Exception {
+                            mIsQueryRunning = false;
+                            if (mIsQueryPending) {
+                                mIsQueryPending = false;
+                                dispatch();
+                            } else if (!isCancelled()) {
+                                deliver(result);
+                            }
+                        }
+                    }, new Consumer<Throwable>() {
+                        @Override
+                        public void accept(Throwable throwable) throws Exception {
+                            mIsQueryRunning = false;
+                            if (mIsQueryPending) {
+                                mIsQueryPending = false;
+                                dispatch();
+                            } else if (!isCancelled()) {
+                                deliverError(throwable);
+                            }
+                        }
+                    });
+        }
+
+        /**
+         * @return observable, which is subscribed in the background to get the result
+         */
+        @NonNull
+        protected abstract Observable<R> query();
+
+        /**
+         * Called in the main thread with the result of the latest query
+         */
+        protected abstract void deliver(@NonNull R result);
+
+        /**
+         * Called in the main thread when the latest query fails
+         */
+        protected abstract void deliverError(@NonNull Throwable error);
+    }
+
+    /**
+     * Query subscription which delivers the result of each query to all the subscribed observers
+     */
+    private static class SharedQuerySubscription<T> extends QuerySubscription<List<T>> {
+
+        private final String mKey;
+
+        private final Table<T> mTable;
+
+        private final Where mWhere;
+
+        /**
+         * Observers are identified by the instance, as in the rest of the registry.
+         * Set is changed under the lock of the registry and read in the main thread, so it's synchronized.
+         */
+        private final Set<ContentTableObserver<T>> mObservers = Collections.synchronizedSet(
+                Collections.newSetFromMap(new IdentityHashMap<ContentTableObserver<T>, Boolean>()));
+
+        SharedQuerySubscription(@NonNull String key, @NonNull Table<T> table, @NonNull Where where,
+                                long debounceMillis) {
+            super(debounceMillis);
+            mKey = key;
+            mTable = table;
+            mWhere = where;
+        }
+
+        @NonNull
+        @Override
+        protected Observable<List<T>> query() {
+            return CancellableQuery.create(mTable, mWhere);
+        }
+
+        @Override
+        protected void deliver(@NonNull List<T> list) {
+            for (ContentTableObserver<T> observer : getObservers()) {
+                // previous observer could unregister this one from its' callback
+                if (mObservers.contains(observer)) {
+                    observer.onTableChanged(list);
+                }
             }
         }
 
-        if (index >= 0) {
-            context.getContentResolver().unregisterContentObserver(mObservers.get(index).second);
-            mObservers.remove(index);
+        @Override
+        protected void deliverError(@NonNull Throwable error) {
+            for (ContentTableObserver<T> observer : getObservers()) {
+                notifyQueryError(observer, error);
+            }
+        }
+
+        /**
+         * Observers can unregister themselves from the callback, so the copy is iterated
+         */
+        @NonNull
+        private List<ContentTableObserver<T>> getObservers() {
+            synchronized (mObservers) {
+                return new ArrayList<>(mObservers);
+            }
         }
     }
 
@@ -0,0 +1,49 @@
+package ru.arturvasilov.sqlite.core;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.List;
+
+/**
+ * Single page of rows, which is returned by {@link SQLite#queryPage(Table, Where, String, int, Object)}
+ * <p/>
+ * To load the next page, pass {@link Page#getNextKey()} as afterKey parameter to the same query.
+ *
+ * @author Artur Vasilov
+ */
+public class Page<T> {
+
+    private final List<T> mItems;
+
+    private final Object mNextKey;
+
+    Page(@NonNull List<T> items, @Nullable Object nextKey) {
+        mItems = items;
+        mNextKey = nextKey;
+    }
+
+    /**
+     * @return rows of this page in the order of key column
+     */
+    @NonNull
+    public List<T> getItems() {
+        return mItems;
+    }
+
+    /**
+     * @return continuation token - value of the key column in the last row of this page
+     * or null if there are no more pages
+     */
+    @Nullable
+    public Object getNextKey() {
+        return mNextKey;
+    }
+
+    /**
+     * @return true if there are more rows after this page
+     */
+    public boolean hasNext() {
+        return mNextKey != null;
+    }
+}
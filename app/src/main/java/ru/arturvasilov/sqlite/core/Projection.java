@@ -0,0 +1,50 @@
+package ru.arturvasilov.sqlite.core;
+
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+
+/**
+ * Companion for the {@link Table}, which reads only part of the row.
+ * <p/>
+ * By default all queries select all columns of the table, which is wasteful when you need only a few of them
+ * (e.g. id and title for the list screen, while the table also stores large body of the article).
+ * With projection only specified columns are read from the database:
+ * <pre>
+ * {code
+ * public class ArticleTitleProjection implements Projection<ArticleTitle> {
+ *
+ *     private static final String[] COLUMNS = {ArticleTable.ID, ArticleTable.TITLE};
+ *
+ *     public String[] getColumns() {
+ *         return COLUMNS;
+ *     }
+ *
+ *     public ArticleTitle fromCursor(Cursor cursor) {
+ *         return new ArticleTitle(cursor.getInt(0), cursor.getString(1));
+ *     }
+ * }
+ * }
+ * </pre>
+ * This interface is used in {@link SQLite#query(Table, Projection, Where)}
+ *
+ * @author Artur Vasilov
+ */
+public interface Projection<R> {
+
+    /**
+     * @return names of the columns to read, cursor will contain them in the same order
+     */
+    @NonNull
+    String[] getColumns();
+
+    /**
+     * In this method you need to create instance of projection class from cursor.
+     * It's guarantee that cursor at the right position and contains only columns from {@link Projection#getColumns()}.
+     *
+     * @param cursor - cursor (opened and ready to be read)
+     * @return instance of projection class
+     */
+    @NonNull
+    R fromCursor(@NonNull Cursor cursor);
+
+}
@@ -0,0 +1,203 @@
+package ru.arturvasilov.sqlite.core;
+
+import android.content.Context;
+import android.net.Uri;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.LruCache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory LRU cache of query results.
+ * <p/>
+ * Entries are removed when the table is written through {@link SQLite} or when table uri is notified.
+ * Query result is cached only if the table wasn't changed while the query was running,
+ * so the cache never returns the content older than the last invalidation.
+ *
+ * @author Artur Vasilov
+ */
+final class QueryCache {
+
+    private final Context mContext;
+
+    private final LruCache<String, Entry> mCache;
+
+    private final Map<Uri, Set<String>> mTableKeys = new HashMap<>();
+
+    private final Map<Uri, Long> mTableVersions = new HashMap<>();
+
+    private final Map<Uri, DatabaseObserver> mTableObservers = new HashMap<>();
+
+    QueryCache(@NonNull Context context, int maxSize, @Nullable final CacheSizeEstimator estimator) {
+        mContext = context;
+        mCache = new LruCache<String, Entry>(maxSize) {
+            @Override
+            protected int sizeOf(String key, Entry entry) {
+                return estimator == null ? 1 : estimator.estimateSize(entry.mTable, entry.mRows);
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, Entry oldEntry, Entry newEntry) {
+                if (evicted) {
+                    synchronized (QueryCache.this) {
+                        Set<String> keys = mTableKeys.get(oldEntry.mTable.getUri());
+                        if (keys != null) {
+                            keys.remove(key);
+                        }
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Selection is used exactly as it is: whitespaces can be a part of the string literal,
+     * so the queries, which differ only in them, may return different rows
+     *
+     * @return key, which is equal only for the same queries
+     */
+    @NonNull
+    static String createKey(@NonNull Table<?> table, @NonNull Where where) {
+        String selection = where.where();
+        StringBuilder key = new StringBuilder()
+                .append(table.getUri())
+                .append('\n');
+        if (selection != null) {
+            // length separates the selection from the rest of the key, even if it contains line breaks
+            key.append(selection.length())
+                    .append(':')
+                    .append(selection);
+        }
+        key.append('\n');
+        Object[] values = where.bindValues();
+        if (values != null) {
+            for (Object value : values) {
+                // arguments are bound with their types, so 1 and "1" are different keys
+                key.append(value == null ? "null" : value.getClass().getSimpleName())
+                        .append(':')
+                        .append(value instanceof byte[] ? Arrays.toString((byte[]) value) : String.valueOf(value))
+                        .append('\u0000');
+            }
+        }
+        return key.append('\n')
+                .append(where.isDistinct())
+                .append('\n')
+                .append(where.groupBy())
+                .append('\n')
+                .append(where.orderBy())
+                .append('\n')
+                .append(where.limit())
+                .toString();
+    }
+
+    /**
+     * @return copy of the cached rows or null if there is no cached result for the query
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    <T> List<T> get(@NonNull String key) {
+        Entry entry = mCache.get(key);
+        return entry == null ? null : new ArrayList<>((List<T>) entry.mRows);
+    }
+
+    /**
+     * @return version of the table, which should be passed to {@link QueryCache#put(Table, String, List, long)}
+     */
+    synchronized long getVersion(@NonNull Table<?> table) {
+        Long version = mTableVersions.get(table.getUri());
+        return version == null ? 0 : version;
+    }
+
+    /**
+     * Caches the result of the query, if the table wasn't invalidated since the query started
+     *
+     * @param version - version of the table taken before the query
+     */
+    synchronized void put(@NonNull Table<?> table, @NonNull String key, @NonNull List<?> rows, long version) {
+        Uri uri = table.getUri();
+        if (getVersion(table) != version) {
+            return;
+        }
+        Set<String> keys = mTableKeys.get(uri);
+        if (keys == null) {
+            keys = new HashSet<>();
+            mTableKeys.put(uri, keys);
+            observeTable(uri);
+        }
+        keys.add(key);
+        mCache.put(key, new Entry(table, new ArrayList<>(rows)));
+    }
+
+    void invalidate(@NonNull Table<?> table) {
+        invalidate(table.getUri());
+    }
+
+    synchronized void invalidate(@NonNull Uri uri) {
+        Long version = mTableVersions.get(uri);
+        mTableVersions.put(uri, version == null ? 1 : version + 1);
+        Set<String> keys = mTableKeys.get(uri);
+        if (keys != null) {
+            for (String key : new ArrayList<>(keys)) {
+                mCache.remove(key);
+            }
+            keys.clear();
+        }
+    }
+
+    int getHitCount() {
+        return mCache.hitCount();
+    }
+
+    int getMissCount() {
+        return mCache.missCount();
+    }
+
+    /**
+     * Removes all entries and stops observing tables
+     */
+    synchronized void clear() {
+        for (DatabaseObserver observer : mTableObservers.values()) {
+            mContext.getContentResolver().unregisterContentObserver(observer);
+        }
+        mTableObservers.clear();
+        mTableKeys.clear();
+        mCache.evictAll();
+    }
+
+    /**
+     * Tracks notifications from other sources than {@link SQLite}, e.g. from the other process
+     */
+    private void observeTable(@NonNull final Uri uri) {
+        if (mTableObservers.containsKey(uri)) {
+            return;
+        }
+        DatabaseObserver observer = new DatabaseObserver() {
+            @Override
+            public void onChange(boolean selfChange) {
+                invalidate(uri);
+            }
+        };
+        mTableObservers.put(uri, observer);
+        mContext.getContentResolver().registerContentObserver(uri, false, observer);
+    }
+
+    private static class Entry {
+
+        private final Table<?> mTable;
+
+        private final List<?> mRows;
+
+        Entry(@NonNull Table<?> table, @NonNull List<?> rows) {
+            mTable = table;
+            mRows = rows;
+        }
+    }
+
+}
@@ -0,0 +1,21 @@
+package ru.arturvasilov.sqlite.core;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Implement this interface together with {@link ContentTableObserver} or {@link DiffTableObserver}
+ * when you want to know that the table couldn't be queried after the change.
+ * Observers without this interface don't receive the data for such change and the error is only logged.
+ *
+ * @author Artur Vasilov
+ */
+public interface QueryErrorObserver {
+
+    /**
+     * Called in the main thread, observer stays registered and is notified about the next changes as usual
+     *
+     * @param error - exception thrown by the query
+     */
+    void onQueryError(@NonNull Throwable error);
+
+}
@@ -0,0 +1,102 @@
+package ru.arturvasilov.sqlite.core;
+
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import ru.arturvasilov.sqlite.utils.SQLiteUtils;
+
+/**
+ * Lazy result of the query, which is returned by {@link SQLite#iterate(Table, Where)}.
+ * <p/>
+ * Unlike {@link SQLite#query(Table, Where)} it doesn't read all rows into the list,
+ * but holds an opened cursor and creates objects with {@link Table#fromCursor(android.database.Cursor)}
+ * only when you request the next element, so memory usage doesn't depend on the size of the table.
+ * <p/>
+ * Cursor is closed automatically after the last element, but if you stop iteration earlier,
+ * you must call {@link QueryIterable#close()} yourself:
+ * <pre>
+ * {code
+ * QueryIterable<Person> persons = SQLite.get().iterate(PersonTable.TABLE);
+ * try {
+ *     for (Person person : persons) {
+ *         if (person.getAge() > 100) {
+ *             break;
+ *         }
+ *     }
+ * } finally {
+ *     persons.close();
+ * }
+ * }
+ * </pre>
+ * Result can be iterated only once.
+ *
+ * @author Artur Vasilov
+ */
+public class QueryIterable<T> implements Iterable<T>, Closeable {
+
+    private final Table<T> mTable;
+
+    private final Cursor mCursor;
+
+    private boolean mIsIterated;
+
+    QueryIterable(@NonNull Table<T> table, @Nullable Cursor cursor) {
+        mTable = table;
+        mCursor = cursor;
+    }
+
+    @NonNull
+    @Override
+    public Iterator<T> iterator() {
+        if (mIsIterated) {
+            throw new IllegalStateException("QueryIterable can be iterated only once");
+        }
+        mIsIterated = true;
+        return new CursorIterator();
+    }
+
+    /**
+     * Closes the cursor of this query. It's safe to call this method several times.
+     */
+    @Override
+    public void close() {
+        SQLiteUtils.safeCloseCursor(mCursor);
+    }
+
+    private class CursorIterator implements Iterator<T> {
+
+        private boolean mIsMoved;
+        private boolean mHasNext;
+
+        @Override
+        public boolean hasNext() {
+            if (!mIsMoved) {
+                mHasNext = mCursor != null && !mCursor.isClosed() && mCursor.moveToNext();
+                mIsMoved = true;
+                if (!mHasNext) {
+                    close();
+                }
+            }
+            return mHasNext;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            mIsMoved = false;
+            return mTable.fromCursor(mCursor);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("QueryIterable is read-only");
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package ru.arturvasilov.sqlite.core;
+
+import android.support.annotation.NonNull;
+
+import org.sqlite.database.sqlite.SQLiteDatabase;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed set of read-only connections to the database in WAL mode.
+ * <p/>
+ * Each connection is thread-safe, so queries are distributed between connections in turn
+ * and cursors can be read after the query returns. Connections are opened lazily,
+ * after the writer has created and configured the database, and each one is guarded by its' own lock,
+ * so opening one connection doesn't block queries in the others.
+ *
+ * @author Artur Vasilov
+ */
+final class ReadConnectionPool {
+
+    private final SQLiteHelper mSQLiteHelper;
+
+    private final SQLiteConfig mConfig;
+
+    private final SQLiteDatabase[] mConnections;
+
+    private final Object[] mLocks;
+
+    private final AtomicInteger mNextConnection = new AtomicInteger();
+
+    ReadConnectionPool(@NonNull SQLiteHelper sqLiteHelper, @NonNull SQLiteConfig config, int size) {
+        mSQLiteHelper = sqLiteHelper;
+        mConfig = config;
+        mConnections = new SQLiteDatabase[size];
+        mLocks = new Object[size];
+        for (int i = 0; i < size; i++) {
+            mLocks[i] = new Object();
+        }
+    }
+
+    @NonNull
+    SQLiteDatabase getConnection() {
+        // writer creates the database, upgrades it and switches it to WAL before readers are opened,
+        // it's done before taking the lock, so the slow open doesn't hold the slot
+        String path = mSQLiteHelper.getWritableDatabase().getPath();
+        int index = (mNextConnection.getAndIncrement() & Integer.MAX_VALUE) % mConnections.length;
+        synchronized (mLocks[index]) {
+            SQLiteDatabase connection = mConnections[index];
+            if (connection == null || !connection.isOpen()) {
+                connection = SQLiteDatabase.openDatabase(path, null, SQLiteDatabase.OPEN_READONLY);
+                mConfig.configureReader(connection);
+                mConnections[index] = connection;
+            }
+            return connection;
+        }
+    }
+
+    /**
+     * Closes all opened connections. Cursors, which are still in use, keep their connection open until they are closed.
+     * Pool can be used after this call, connections are opened again on demand.
+     */
+    void close() {
+        for (int i = 0; i < mConnections.length; i++) {
+            synchronized (mLocks[i]) {
+                SQLiteDatabase connection = mConnections[i];
+                if (connection != null) {
+                    connection.close();
+                    mConnections[i] = null;
+                }
+            }
+        }
+    }
+
+}
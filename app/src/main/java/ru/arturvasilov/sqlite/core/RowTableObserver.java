@@ -0,0 +1,36 @@
+package ru.arturvasilov.sqlite.core;
+
+import android.support.annotation.NonNull;
+
+import java.util.Set;
+
+/**
+ * Use this interface when you want to know which rows of the table were changed,
+ * e.g. to update only these rows in memory instead of reloading the whole table.
+ * This interface is used in {@link SQLite#registerObserver(Table, RowTableObserver)}
+ * <p/>
+ * Rows are identified by their rowid, which is the same as the value of INTEGER PRIMARY KEY column.
+ * Insert replaces conflicting rows, so if the table has other unique constraints (e.g. a primary key of another type),
+ * the replaced row can't be identified and insert is reported by {@link #onTableChanged()}.
+ * Row-level notifications are sent only by automatic notifications (see {@link SQLite#enableAutomaticNotifications()}).
+ *
+ * @author Artur Vasilov
+ */
+public interface RowTableObserver {
+
+    /**
+     * This method notifies you that certain rows were inserted, updated or deleted.
+     * For updates and deletes these are the rows which satisfied the where parameter.
+     *
+     * @param rowIds - ids of changed rows
+     */
+    void onRowsChanged(@NonNull Set<Long> rowIds);
+
+    /**
+     * This method is called when changed rows are unknown
+     * (e.g. after inserting the list of objects, batch operations or {@link SQLite#notifyTableChanged(Table)} call),
+     * so you should consider that any rows might change.
+     */
+    void onTableChanged();
+
+}
@@ -1,16 +1,30 @@
 package ru.arturvasilov.sqlite.core;
 
 import android.content.ContentResolver;
-import android.content.ContentValues;
+import android.content.ContentUris;
 import android.content.Context;
 import android.database.ContentObserver;
 import android.database.Cursor;
 import android.net.Uri;
+import android.os.CancellationSignal;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+import org.sqlite.database.sqlite.SQLiteDatabase;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 
 import ru.arturvasilov.sqlite.utils.SQLiteUtils;
 
@@ -19,21 +33,38 @@ import ru.arturvasilov.sqlite.utils.SQLiteUtils;
  */
 public class SQLite {
 
-    static {
-        System.loadLibrary("sqliteX");
-    }
+    /**
+     * SQLite has a limit of 999 bound arguments in the single query
+     */
+    private static final int MAX_KEYS_IN_QUERY = 500;
 
     private static SQLite sSQLite;
 
     private final Context mContext;
 
+    private final DataSource mDataSource;
+
     private final Observers mObservers;
 
+    private final ThreadLocal<TransactionState> mTransactionState;
+
+    private final Map<String, Boolean> mReplacingByRowIdTables;
+
     private boolean mIsAutomaticNotificationsEnabled;
 
-    private SQLite(@NonNull Context context) {
+    @Nullable
+    private volatile QueryCache mQueryCache;
+
+    @Nullable
+    private volatile IdentityMap mIdentityMap;
+
+    private SQLite(@NonNull Context context, boolean directAccess) {
         mContext = context;
+        mDataSource = directAccess ? SQLiteContentProvider.getDatabaseDataSource()
+                : new ContentResolverDataSource(context);
         mObservers = new Observers();
+        mTransactionState = new ThreadLocal<>();
+        mReplacingByRowIdTables = new ConcurrentHashMap<>();
         mIsAutomaticNotificationsEnabled = false;
     }
 
@@ -58,12 +89,34 @@ public class SQLite {
      */
     @NonNull
     public static SQLite initialize(@NonNull Context context) {
+        return initialize(context, false);
+    }
+
+    /**
+     * Same as {@link SQLite#initialize(Context)}, but also allows you to choose how operations are executed.
+     * <p/>
+     * By default all operations go through the ContentResolver. If your database is never shared
+     * with other processes, you can pass true as directAccess parameter and all operations will be sent
+     * straight to the database of {@link SQLiteContentProvider} in the current process,
+     * which saves provider lookup, uri matching and cursor marshalling for each call.
+     * Tables, queries and notifications work exactly the same way in both modes.
+     * <p/>
+     * Note: direct access requires {@link SQLiteContentProvider} to run in the same process as the caller,
+     * otherwise {@link IllegalStateException} will be thrown.
+     * Mode is chosen only once, when the singleton instance is created.
+     *
+     * @param context      - any context to access the content provider
+     * @param directAccess - true to bypass ContentResolver and work with the database directly
+     * @return created singleton instance of SQLite
+     */
+    @NonNull
+    public static SQLite initialize(@NonNull Context context, boolean directAccess) {
         SQLite sqLite = sSQLite;
         if (sqLite == null) {
             synchronized (SQLite.class) {
                 sqLite = sSQLite;
                 if (sqLite == null) {
-                    sqLite = sSQLite = new SQLite(context.getApplicationContext());
+                    sqLite = sSQLite = new SQLite(context.getApplicationContext(), directAccess);
                 }
             }
         }
@@ -84,6 +137,20 @@ public class SQLite {
         return sSQLite;
     }
 
+    /**
+     * Drops the singleton instance, so the next {@link SQLite#initialize(Context, boolean)} can choose another mode.
+     * Observers of the dropped instance are unregistered, so they don't receive changes of the next one.
+     */
+    @VisibleForTesting
+    static void reset() {
+        synchronized (SQLite.class) {
+            if (sSQLite != null) {
+                sSQLite.mObservers.unregisterAll(sSQLite.mContext);
+            }
+            sSQLite = null;
+        }
+    }
+
     /**
      * This methods returns all rows of the table.
      * If you want to specify query parameters, you should call {@link SQLite#query(Table, Where)}
@@ -103,9 +170,71 @@ public class SQLite {
      */
     @NonNull
     public <T> List<T> query(@NonNull Table<T> table, @NonNull Where where) {
+        return query(table, where, null);
+    }
+
+    /**
+     * Same as {@link SQLite#query(Table, Where)}, but the query can be cancelled while it's running.
+     * Cancelled query throws {@link android.os.OperationCanceledException}.
+     *
+     * @param table              - table you want to query
+     * @param where              - arguments for query
+     * @param cancellationSignal - signal to cancel the query or null
+     * @return all rows from the table which satisfy where parameter as a list of table class objects.
+     */
+    @NonNull
+    public <T> List<T> query(@NonNull Table<T> table, @NonNull Where where,
+                             @Nullable CancellationSignal cancellationSignal) {
+        QueryCache cache = mTransactionState.get() == null ? mQueryCache : null;
+        if (cache == null) {
+            return queryRows(table, where, cancellationSignal);
+        }
+
+        String key = QueryCache.createKey(table, where);
+        List<T> cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        long version = cache.getVersion(table);
+        List<T> list = queryRows(table, where, cancellationSignal);
+        cache.put(table, key, list, version);
+        return list;
+    }
+
+    @NonNull
+    private <T> List<T> queryRows(@NonNull Table<T> table, @NonNull Where where,
+                                  @Nullable CancellationSignal cancellationSignal) {
+        List<T> list = new ArrayList<>();
+
+        Cursor cursor = mDataSource.query(table, null, where, cancellationSignal);
+        try {
+            if (SQLiteUtils.isEmptyCursor(cursor)) {
+                return list;
+            }
+            do {
+                T t = table.fromCursor(cursor);
+                list.add(t);
+            } while (cursor.moveToNext());
+            return list;
+        } finally {
+            SQLiteUtils.safeCloseCursor(cursor);
+        }
+    }
+
+    /**
+     * Executes the compiled query with the given arguments.
+     * SQL of the query is not built again, so it's the fastest way to run the same query many times.
+     *
+     * @param query - compiled query
+     * @param args  - values of the arguments in the order of where, or nothing to use values from where
+     * @return all rows from the table which satisfy the query as a list of table class objects.
+     */
+    @NonNull
+    public <T> List<T> query(@NonNull CompiledQuery<T> query, @NonNull Object... args) {
         List<T> list = new ArrayList<>();
 
-        Cursor cursor = mContext.getContentResolver().query(table.getUri(), null, where.where(), where.whereArgs(), null);
+        Table<T> table = query.getTable();
+        Cursor cursor = mDataSource.query(query, query.getBindArgs(args));
         try {
             if (SQLiteUtils.isEmptyCursor(cursor)) {
                 return list;
@@ -120,6 +249,144 @@ public class SQLite {
         }
     }
 
+    /**
+     * Same as {@link SQLite#query(CompiledQuery, Object...)}, but returns only the first row
+     *
+     * @param query - compiled query
+     * @param args  - values of the arguments in the order of where, or nothing to use values from where
+     * @return first row which satisfies the query or null if there is no such row
+     */
+    @Nullable
+    public <T> T querySingle(@NonNull CompiledQuery<T> query, @NonNull Object... args) {
+        Cursor cursor = mDataSource.query(query, query.getBindArgs(args));
+        try {
+            if (SQLiteUtils.isEmptyCursor(cursor)) {
+                return null;
+            }
+            return query.getTable().fromCursor(cursor);
+        } finally {
+            SQLiteUtils.safeCloseCursor(cursor);
+        }
+    }
+
+    /**
+     * Same as {@link SQLite#query(Table, Where)}, but reads only columns specified by projection
+     *
+     * @param table      - table you want to query
+     * @param projection - columns to read and the way to convert them into the object
+     * @param where      - arguments for query
+     * @return all rows from the table which satisfy where parameter as a list of projection class objects.
+     */
+    @NonNull
+    public <R> List<R> query(@NonNull Table<?> table, @NonNull Projection<R> projection, @NonNull Where where) {
+        List<R> list = new ArrayList<>();
+
+        Cursor cursor = mDataSource.query(table, projection.getColumns(), where, null);
+        try {
+            if (SQLiteUtils.isEmptyCursor(cursor)) {
+                return list;
+            }
+            do {
+                R r = projection.fromCursor(cursor);
+                list.add(r);
+            } while (cursor.moveToNext());
+            return list;
+        } finally {
+            SQLiteUtils.safeCloseCursor(cursor);
+        }
+    }
+
+    /**
+     * This method returns all rows of the table lazily.
+     * If you want to specify query parameters, you should call {@link SQLite#iterate(Table, Where)}
+     *
+     * @param table - table you want to query
+     * @return lazy iterable over all rows from the table
+     */
+    @NonNull
+    public <T> QueryIterable<T> iterate(@NonNull Table<T> table) {
+        return iterate(table, Where.create());
+    }
+
+    /**
+     * Same as {@link SQLite#query(Table, Where)}, but objects are created only when they are requested
+     * during iteration, which allows you to scan large tables without reading all of them into memory.
+     * <p/>
+     * Don't forget to close the result if you don't iterate it till the end, more in {@link QueryIterable}
+     *
+     * @param table - table you want to query
+     * @param where - arguments for query
+     * @return lazy iterable over rows from the table which satisfy where parameter
+     */
+    @NonNull
+    public <T> QueryIterable<T> iterate(@NonNull Table<T> table, @NonNull Where where) {
+        Cursor cursor = mDataSource.query(table, null, where, null);
+        return new QueryIterable<>(table, cursor);
+    }
+
+    /**
+     * Query for the single page of rows using keyset pagination.
+     * <p/>
+     * Unlike {@link Where#offset(int)}, which has to skip all previous rows,
+     * this method continues right after the last seen key, so each page is loaded in the same time
+     * (especially if there is an index for the key column):
+     * <pre>
+     * {code
+     * Page<Person> page = SQLite.get().queryPage(PersonTable.TABLE, Where.create(), PersonTable.ID, 20, null);
+     * // ...
+     * if (page.hasNext()) {
+     *     page = SQLite.get().queryPage(PersonTable.TABLE, Where.create(), PersonTable.ID, 20, page.getNextKey());
+     * }
+     * }
+     * </pre>
+     * Values of the key column must be unique and not null (e.g. primary key).
+     * Order, limit and offset of the where parameter are ignored, distinct is applied to each page.
+     * Grouped rows can't be paginated, since the key filters rows before they are grouped,
+     * so where with {@link Where#groupBy(String...)} throws {@link IllegalArgumentException}.
+     *
+     * @param table     - table you want to query
+     * @param where     - arguments for query
+     * @param keyColumn - column which defines the order of rows and is used to continue the query
+     * @param pageSize  - maximum count of rows in the page
+     * @param afterKey  - {@link Page#getNextKey()} of the previous page or null for the first page
+     * @return page with rows which satisfy where parameter and go after the specified key
+     */
+    @NonNull
+    public <T> Page<T> queryPage(@NonNull Table<T> table, @NonNull Where where, @NonNull String keyColumn,
+                                 int pageSize, @Nullable Object afterKey) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        if (where.groupBy() != null) {
+            throw new IllegalArgumentException("Grouped rows can't be paginated by key");
+        }
+
+        // one extra row is requested to know if there is a next page
+        Where keyset = Where.keyset(where, keyColumn, afterKey)
+                .orderBy(keyColumn)
+                .limit(pageSize + 1);
+        List<T> list = new ArrayList<>();
+        Object nextKey = null;
+
+        Cursor cursor = mDataSource.query(table, null, keyset, null);
+        try {
+            if (SQLiteUtils.isEmptyCursor(cursor)) {
+                return new Page<>(list, null);
+            }
+            do {
+                if (list.size() == pageSize) {
+                    cursor.moveToPrevious();
+                    nextKey = SQLiteUtils.getValue(cursor, cursor.getColumnIndexOrThrow(keyColumn));
+                    break;
+                }
+                list.add(table.fromCursor(cursor));
+            } while (cursor.moveToNext());
+            return new Page<>(list, nextKey);
+        } finally {
+            SQLiteUtils.safeCloseCursor(cursor);
+        }
+    }
+
     /**
      * Query for the first object in the table
      *
@@ -140,7 +407,7 @@ public class SQLite {
      */
     @Nullable
     public <T> T querySingle(@NonNull Table<T> table, @NonNull Where where) {
-        Cursor cursor = mContext.getContentResolver().query(table.getUri(), null, where.where(), where.whereArgs(), where.limit());
+        Cursor cursor = mDataSource.query(table, null, limitSingle(where), null);
         try {
             if (SQLiteUtils.isEmptyCursor(cursor)) {
                 return null;
@@ -151,6 +418,189 @@ public class SQLite {
         }
     }
 
+    /**
+     * Same as {@link SQLite#querySingle(Table, Where)}, but reads only columns specified by projection
+     *
+     * @param table      - table you want to query
+     * @param projection - columns to read and the way to convert them into the object
+     * @param where      - arguments for query
+     * @return first object from the table or null if table is empty
+     */
+    @Nullable
+    public <R> R querySingle(@NonNull Table<?> table, @NonNull Projection<R> projection, @NonNull Where where) {
+        Cursor cursor = mDataSource.query(table, projection.getColumns(), limitSingle(where), null);
+        try {
+            if (SQLiteUtils.isEmptyCursor(cursor)) {
+                return null;
+            }
+            return projection.fromCursor(cursor);
+        } finally {
+            SQLiteUtils.safeCloseCursor(cursor);
+        }
+    }
+
+    /**
+     * @param table - table you want to count rows in
+     * @return count of all rows in the table
+     */
+    public long count(@NonNull Table<?> table) {
+        return count(table, Where.create());
+    }
+
+    /**
+     * Counts rows in the database without reading them. Order, grouping and limit of where are ignored.
+     *
+     * @param table - table you want to count rows in
+     * @param where - arguments for query
+     * @return count of rows which satisfy where parameter
+     */
+    public long count(@NonNull Table<?> table, @NonNull Where where) {
+        Cursor cursor = mDataSource.query(table, new String[]{"count(*)"}, where.copySelection(), null);
+        try {
+            if (SQLiteUtils.isEmptyCursor(cursor)) {
+                return 0;
+            }
+            return cursor.getLong(0);
+        } finally {
+            SQLiteUtils.safeCloseCursor(cursor);
+        }
+    }
+
+    /**
+     * @param table - table you want to check
+     * @return true if there is at least one row in the table
+     */
+    public boolean exists(@NonNull Table<?> table) {
+        return exists(table, Where.create());
+    }
+
+    /**
+     * Checks if there is any row which satisfies where parameter.
+     * Query stops at the first found row, so it's much faster than {@link SQLite#count(Table, Where)} for this case.
+     *
+     * @param table - table you want to check
+     * @param where - arguments for query
+     * @return true if there is at least one row which satisfies where parameter
+     */
+    public boolean exists(@NonNull Table<?> table, @NonNull Where where) {
+        Cursor cursor = mDataSource.query(table, new String[]{"1"}, where.copySelection().limit(1), null);
+        try {
+            return !SQLiteUtils.isEmptyCursor(cursor);
+        } finally {
+            SQLiteUtils.safeCloseCursor(cursor);
+        }
+    }
+
+    /**
+     * Calculates minimum of the column values in the database. Order, grouping and limit of where are ignored.
+     *
+     * @param table  - table you want to query
+     * @param column - column to aggregate
+     * @param where  - arguments for query
+     * @return minimum value of the column or {@link Double#NaN} if there are no rows with not null values
+     */
+    public double min(@NonNull Table<?> table, @NonNull String column, @NonNull Where where) {
+        return aggregate(table, "min(" + column + ")", where);
+    }
+
+    /**
+     * Same as {@link SQLite#min(Table, String, Where)}, but calculates maximum
+     *
+     * @return maximum value of the column or {@link Double#NaN} if there are no rows with not null values
+     */
+    public double max(@NonNull Table<?> table, @NonNull String column, @NonNull Where where) {
+        return aggregate(table, "max(" + column + ")", where);
+    }
+
+    /**
+     * Same as {@link SQLite#min(Table, String, Where)}, but calculates sum
+     *
+     * @return sum of the column values or 0 if there are no rows with not null values
+     */
+    public double sum(@NonNull Table<?> table, @NonNull String column, @NonNull Where where) {
+        // unlike sum(), total() returns 0 for no rows and never overflows
+        return aggregate(table, "total(" + column + ")", where);
+    }
+
+    /**
+     * Same as {@link SQLite#min(Table, String, Where)}, but calculates average
+     *
+     * @return average value of the column or {@link Double#NaN} if there are no rows with not null values
+     */
+    public double avg(@NonNull Table<?> table, @NonNull String column, @NonNull Where where) {
+        return aggregate(table, "avg(" + column + ")", where);
+    }
+
+    private double aggregate(@NonNull Table<?> table, @NonNull String function, @NonNull Where where) {
+        Cursor cursor = mDataSource.query(table, new String[]{function}, where.copySelection(), null);
+        try {
+            if (SQLiteUtils.isEmptyCursor(cursor) || cursor.isNull(0)) {
+                return Double.NaN;
+            }
+            return cursor.getDouble(0);
+        } finally {
+            SQLiteUtils.safeCloseCursor(cursor);
+        }
+    }
+
+    /**
+     * Returns the object with the given primary key.
+     * If identity map is enabled with {@link SQLite#enableIdentityMap(int)}, object is taken from memory when possible.
+     *
+     * @param table - table you want to query
+     * @param key   - value of the primary key
+     * @return object with the key or null if there is no such object
+     */
+    @Nullable
+    public <T> T getById(@NonNull KeyedTable<T> table, @NonNull Object key) {
+        List<T> list = getByIds(table, Collections.singletonList(key));
+        return list.isEmpty() ? null : list.get(0);
+    }
+
+    /**
+     * Returns the objects with the given primary keys. Objects, which are not in memory,
+     * are queried with one query for each 500 keys.
+     *
+     * @param table - table you want to query
+     * @param keys  - values of the primary key
+     * @return list of found objects in the order of keys, missing objects are skipped
+     */
+    @NonNull
+    public <T> List<T> getByIds(@NonNull KeyedTable<T> table, @NonNull Collection<?> keys) {
+        IdentityMap identityMap = mTransactionState.get() == null ? mIdentityMap : null;
+        Map<String, T> objects = new HashMap<>();
+        List<Object> missingKeys = new ArrayList<>();
+        for (Object key : keys) {
+            T object = identityMap == null ? null : identityMap.get(table, key);
+            if (object == null) {
+                missingKeys.add(key);
+            } else {
+                objects.put(String.valueOf(key), object);
+            }
+        }
+
+        long version = identityMap == null ? 0 : identityMap.getVersion(table);
+        for (int start = 0; start < missingKeys.size(); start += MAX_KEYS_IN_QUERY) {
+            List<Object> chunk = missingKeys.subList(start, Math.min(start + MAX_KEYS_IN_QUERY, missingKeys.size()));
+            Where where = Where.create().in(table.getKeyColumn(), chunk.toArray());
+            for (T object : queryRows(table, where, null)) {
+                objects.put(String.valueOf(table.getKey(object)), object);
+                if (identityMap != null) {
+                    identityMap.put(table, object, version);
+                }
+            }
+        }
+
+        List<T> result = new ArrayList<>();
+        for (Object key : keys) {
+            T object = objects.get(String.valueOf(key));
+            if (object != null) {
+                result.add(object);
+            }
+        }
+        return result;
+    }
+
     /**
      * This method inserts object to the table. In cases of conflict the old object will be replaced by the new one.
      *
@@ -160,28 +610,27 @@ public class SQLite {
      */
     @Nullable
     public <T> Uri insert(@NonNull Table<T> table, @NonNull T object) {
-        Uri uri = mContext.getContentResolver().insert(table.getUri(), table.toValues(object));
-        if (uri != null && mIsAutomaticNotificationsEnabled) {
-            notifyTableChanged(table);
+        Uri uri = mDataSource.insert(table, object);
+        if (uri != null) {
+            onTableWritten(table, getInsertedRowIds(table, uri));
         }
         return uri;
     }
 
     /**
      * This method inserts objects to the table. In cases of conflict the old objects will be replaced by the new ones.
+     * <p/>
+     * If the table implements {@link BindableTable} and SQLite works with the database directly,
+     * all objects are inserted with the single compiled statement.
      *
      * @param table   - table in which you want to insert objects
      * @param objects - list of objects to insert in database
      * @return count of successfully inserted objects
      */
     public <T> int insert(@NonNull Table<T> table, @NonNull List<T> objects) {
-        ContentValues[] values = new ContentValues[objects.size()];
-        for (int i = 0; i < objects.size(); i++) {
-            values[i] = table.toValues(objects.get(i));
-        }
-        int count = mContext.getContentResolver().bulkInsert(table.getUri(), values);
-        if (count > 0 && mIsAutomaticNotificationsEnabled) {
-            notifyTableChanged(table);
+        int count = mDataSource.bulkInsert(table, objects);
+        if (count > 0) {
+            onTableWritten(table, null);
         }
         return count;
     }
@@ -204,10 +653,23 @@ public class SQLite {
      * @param where - arguments for delete rows from the table
      * @return count of deleted objects
      */
-    public <T> int delete(@NonNull Table<T> table, @NonNull Where where) {
-        int count = mContext.getContentResolver().delete(table.getUri(), where.where(), where.whereArgs());
-        if (count > 0 && mIsAutomaticNotificationsEnabled) {
-            notifyTableChanged(table);
+    public <T> int delete(@NonNull final Table<T> table, @NonNull final Where where) {
+        if (isChangedRowsTransactionRequired(table)) {
+            return runInTransaction(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    return deleteRows(table, where);
+                }
+            });
+        }
+        return deleteRows(table, where);
+    }
+
+    private int deleteRows(@NonNull Table<?> table, @NonNull Where where) {
+        Set<Long> rowIds = queryChangedRowIds(table, where);
+        int count = mDataSource.delete(table, where.where(), where.bindValues());
+        if (count > 0) {
+            onTableWritten(table, rowIds);
         }
         return count;
     }
@@ -220,15 +682,125 @@ public class SQLite {
      * @param newObject - object which will replace all rows which satisfy where parameter
      * @return count of updated objects
      */
-    public <T> int update(@NonNull Table<T> table, @NonNull Where where, @NonNull T newObject) {
-        int count = mContext.getContentResolver().update(table.getUri(), table.toValues(newObject),
-                where.where(), where.whereArgs());
-        if (count > 0 && mIsAutomaticNotificationsEnabled) {
-            notifyTableChanged(table);
+    public <T> int update(@NonNull final Table<T> table, @NonNull final Where where, @NonNull final T newObject) {
+        if (isChangedRowsTransactionRequired(table)) {
+            return runInTransaction(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    return updateRows(table, where, newObject);
+                }
+            });
+        }
+        return updateRows(table, where, newObject);
+    }
+
+    private <T> int updateRows(@NonNull Table<T> table, @NonNull Where where, @NonNull T newObject) {
+        Set<Long> rowIds = queryChangedRowIds(table, where);
+        int count = mDataSource.update(table, table.toValues(newObject), where.where(), where.bindValues());
+        if (count > 0) {
+            onTableWritten(table, rowIds);
         }
         return count;
     }
 
+    /**
+     * Creates builder for the set of insert, update and delete operations in any tables,
+     * which are applied in a single transaction. For more information take a look at {@link Batch}
+     *
+     * @return empty batch
+     */
+    @NonNull
+    public Batch batch() {
+        return new Batch(this);
+    }
+
+    /**
+     * Runs all operations from the callable in a single write transaction.
+     * <p/>
+     * Transaction holds the database lock for the whole block, so you can read, modify and write the data
+     * without races with other threads. If callable throws an exception, all changes are rolled back.
+     * <p/>
+     * If automatic notifications are enabled, tables are not notified after each operation in the block,
+     * but only once per each changed table and only after successful commit.
+     * <p/>
+     * Note: transactions require {@link SQLiteContentProvider} to run in the same process as the caller
+     * and all operations must be called from the same thread as this method.
+     * Transactions can be nested. If the nested transaction fails, the whole transaction is rolled back,
+     * so even if the outer block catches the exception, {@link IllegalStateException} is thrown
+     * after the outer block and no tables are notified.
+     *
+     * @param callable - block of operations to run in transaction
+     * @return result of the callable
+     */
+    public <R> R runInTransaction(@NonNull Callable<R> callable) {
+        SQLiteDatabase database = SQLiteContentProvider.getDatabaseDataSource().getWritableDatabase();
+        TransactionState state = mTransactionState.get();
+        boolean isOutermost = state == null;
+        if (isOutermost) {
+            state = new TransactionState();
+            mTransactionState.set(state);
+        }
+
+        boolean isSuccessful = false;
+        try {
+            database.beginTransaction();
+            try {
+                R result = callable.call();
+                if (state.mNestedError != null) {
+                    throw new IllegalStateException("Nested transaction failed, all changes are rolled back",
+                            state.mNestedError);
+                }
+                database.setTransactionSuccessful();
+                isSuccessful = true;
+                return result;
+            } finally {
+                database.endTransaction();
+            }
+        } catch (RuntimeException e) {
+            isSuccessful = false;
+            onTransactionFailed(state, isOutermost, e);
+            throw e;
+        } catch (Exception e) {
+            isSuccessful = false;
+            onTransactionFailed(state, isOutermost, e);
+            throw new IllegalStateException("Transaction failed", e);
+        } finally {
+            if (isOutermost) {
+                mTransactionState.remove();
+                for (Table<?> table : state.mWrittenTables) {
+                    invalidateCaches(table);
+                }
+                if (isSuccessful) {
+                    for (Map.Entry<Table<?>, Set<Long>> change : state.mChanges.entrySet()) {
+                        notifyTableChanged(change.getKey(), change.getValue());
+                    }
+                }
+            }
+        }
+    }
+
+    private static void onTransactionFailed(@NonNull TransactionState state, boolean isOutermost,
+                                            @NonNull Exception error) {
+        if (!isOutermost && state.mNestedError == null) {
+            state.mNestedError = error;
+        }
+    }
+
+    /**
+     * Same as {@link SQLite#runInTransaction(Callable)} for blocks without result
+     *
+     * @param runnable - block of operations to run in transaction
+     */
+    public void runInTransaction(@NonNull final Runnable runnable) {
+        runInTransaction(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                runnable.run();
+                return null;
+            }
+        });
+    }
+
     /**
      * Attaches callback to get notified about changes in certain table
      * For more information take a look at {@link BasicTableObserver}
@@ -237,7 +809,21 @@ public class SQLite {
      * @param observer - listener which will be called when table changes
      */
     public <T> void registerObserver(@NonNull Table<T> table, @NonNull final BasicTableObserver observer) {
-        mObservers.registerObserver(mContext, table, observer);
+        registerObserver(table, observer, 0);
+    }
+
+    /**
+     * Same as {@link SQLite#registerObserver(Table, BasicTableObserver)}, but coalesces changes:
+     * the first change starts the window and all changes during the window produce a single callback at its' end,
+     * so burst of many small writes produces a single callback and continuous writes can't delay it
+     * for more than the window.
+     *
+     * @param table          - table to observe changes in
+     * @param observer       - listener which will be called when table changes
+     * @param debounceMillis - coalescing window in milliseconds, 0 to get notified about each change
+     */
+    public <T> void registerObserver(@NonNull Table<T> table, @NonNull BasicTableObserver observer, long debounceMillis) {
+        mObservers.registerObserver(mContext, table, observer, debounceMillis);
     }
 
     /**
@@ -250,7 +836,7 @@ public class SQLite {
      * @param observer - listener which will be called when table changes
      */
     public <T> void registerObserver(@NonNull Table<T> table, @NonNull final ContentTableObserver<T> observer) {
-        mObservers.registerObserver(mContext, table, observer, Where.create());
+        registerObserver(table, observer, Where.create());
     }
 
     /**
@@ -262,7 +848,62 @@ public class SQLite {
      * @param where    - arguments for query
      */
     public <T> void registerObserver(@NonNull Table<T> table, @NonNull ContentTableObserver<T> observer, @NonNull Where where) {
-        mObservers.registerObserver(mContext, table, observer, where);
+        registerObserver(table, observer, where, 0);
+    }
+
+    /**
+     * Same as {@link SQLite#registerObserver(Table, ContentTableObserver, Where)}, but coalesces changes:
+     * table is queried only once at the end of the window, which is started by the first change.
+     * <p/>
+     * Queries for {@link ContentTableObserver} are always latest-only: no more than one query is running
+     * for the observer at the same time and if table changes during the query, its' stale result is dropped
+     * and table is queried once again. Running query is cancelled when the observer is unregistered.
+     *
+     * @param table          - table to observe changes in
+     * @param observer       - listener which will be called when table changes
+     * @param where          - arguments for query
+     * @param debounceMillis - coalescing window in milliseconds, 0 to query after each change
+     */
+    public <T> void registerObserver(@NonNull Table<T> table, @NonNull ContentTableObserver<T> observer,
+                                     @NonNull Where where, long debounceMillis) {
+        mObservers.registerObserver(mContext, table, observer, where, debounceMillis);
+    }
+
+    /**
+     * Attaches callback to get notified about the difference in the table content
+     * For more information take a look at {@link DiffTableObserver}
+     *
+     * @param table    - table to observe changes in
+     * @param observer - listener which will be called when content of the table changes
+     * @param where    - arguments for query
+     */
+    public <T> void registerObserver(@NonNull Table<T> table, @NonNull DiffTableObserver<T> observer, @NonNull Where where) {
+        registerObserver(table, observer, where, 0);
+    }
+
+    /**
+     * Same as {@link SQLite#registerObserver(Table, DiffTableObserver, Where)}, but coalesces changes
+     * the same way as {@link SQLite#registerObserver(Table, ContentTableObserver, Where, long)}
+     *
+     * @param table          - table to observe changes in
+     * @param observer       - listener which will be called when content of the table changes
+     * @param where          - arguments for query
+     * @param debounceMillis - coalescing window in milliseconds, 0 to query after each change
+     */
+    public <T> void registerObserver(@NonNull Table<T> table, @NonNull DiffTableObserver<T> observer,
+                                     @NonNull Where where, long debounceMillis) {
+        mObservers.registerObserver(mContext, table, observer, where, debounceMillis);
+    }
+
+    /**
+     * Attaches callback to get notified about changes in certain rows of the table
+     * For more information take a look at {@link RowTableObserver}
+     *
+     * @param table    - table to observe changes in
+     * @param observer - listener which will be called when rows of the table change
+     */
+    public <T> void registerObserver(@NonNull Table<T> table, @NonNull RowTableObserver observer) {
+        mObservers.registerObserver(mContext, table, observer);
     }
 
     /**
@@ -283,6 +924,24 @@ public class SQLite {
         mObservers.unregisterObserver(mContext, observer);
     }
 
+    /**
+     * Detaches listener from observing changes in database
+     *
+     * @param observer - listener to detach from ContentProvider notifications
+     */
+    public <T> void unregisterObserver(@NonNull DiffTableObserver<T> observer) {
+        mObservers.unregisterObserver(mContext, observer);
+    }
+
+    /**
+     * Detaches listener from observing changes in database
+     *
+     * @param observer - listener to detach from ContentProvider notifications
+     */
+    public void unregisterObserver(@NonNull RowTableObserver observer) {
+        mObservers.unregisterObserver(mContext, observer);
+    }
+
     /**
      * Enables {@link android.content.ContentResolver#notifyChange(Uri, ContentObserver)}
      * automatic calls when table changes from SQLite methods.
@@ -303,17 +962,261 @@ public class SQLite {
         mIsAutomaticNotificationsEnabled = false;
     }
 
+    /**
+     * Enables in-memory cache for results of {@link SQLite#query(Table, Where)}, limited by the count of queries.
+     * <p/>
+     * Cached results are removed when the table is changed through SQLite methods or when table uri is notified
+     * with {@link android.content.ContentResolver#notifyChange(Uri, ContentObserver)}.
+     * Queries inside the transaction always go to the database.
+     * <p/>
+     * Cache stores the same objects, which are returned from the query, so they shouldn't be modified.
+     *
+     * @param maxEntries - max count of the cached queries
+     */
+    public void enableQueryCache(int maxEntries) {
+        enableQueryCache(maxEntries, null);
+    }
+
+    /**
+     * Same as {@link SQLite#enableQueryCache(int)}, but cache size is calculated with the estimator,
+     * e.g. in bytes
+     *
+     * @param maxSize   - max size of the cache in units of estimator
+     * @param estimator - estimator for the size of the query result, null to count queries
+     */
+    public void enableQueryCache(int maxSize, @Nullable CacheSizeEstimator estimator) {
+        disableQueryCache();
+        mQueryCache = new QueryCache(mContext, maxSize, estimator);
+    }
+
+    /**
+     * Disables the cache enabled with {@link SQLite#enableQueryCache(int)} and removes all cached results
+     * <p/>
+     * By default cache is disabled.
+     */
+    public void disableQueryCache() {
+        QueryCache cache = mQueryCache;
+        mQueryCache = null;
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * @return count of queries, which were returned from the cache, or 0 if cache is disabled
+     */
+    public int getQueryCacheHitCount() {
+        QueryCache cache = mQueryCache;
+        return cache == null ? 0 : cache.getHitCount();
+    }
+
+    /**
+     * @return count of queries, which weren't found in the cache, or 0 if cache is disabled
+     */
+    public int getQueryCacheMissCount() {
+        QueryCache cache = mQueryCache;
+        return cache == null ? 0 : cache.getMissCount();
+    }
+
+    /**
+     * Enables in-memory identity map for {@link SQLite#getById(KeyedTable, Object)}
+     * and {@link SQLite#getByIds(KeyedTable, Collection)}, so the same objects are not queried again.
+     * <p/>
+     * Objects of the table are removed from memory when the table is changed through SQLite methods
+     * or when table uri is notified. Objects inside the transaction are always queried from the database.
+     * <p/>
+     * Identity map returns the same instances for the same keys, so they shouldn't be modified.
+     *
+     * @param maxEntriesPerTable - max count of objects stored for each table
+     */
+    public void enableIdentityMap(int maxEntriesPerTable) {
+        disableIdentityMap();
+        mIdentityMap = new IdentityMap(mContext, maxEntriesPerTable);
+    }
+
+    /**
+     * Disables the identity map enabled with {@link SQLite#enableIdentityMap(int)} and removes all stored objects
+     * <p/>
+     * By default identity map is disabled.
+     */
+    public void disableIdentityMap() {
+        IdentityMap identityMap = mIdentityMap;
+        mIdentityMap = null;
+        if (identityMap != null) {
+            identityMap.clear();
+        }
+    }
+
     /**
      * Notifies all observers about table change. This call will invoke notifications for all observers,
      * which are registered using one of the register method:
      * {@link SQLite#registerObserver(Table, BasicTableObserver)}
      * {@link SQLite#registerObserver(Table, ContentTableObserver)}
      * {@link SQLite#registerObserver(Table, ContentTableObserver, Where)}
+     * {@link SQLite#registerObserver(Table, RowTableObserver)}
      *
      * @param table - uri from this table will be used for notification for observers
      */
     public <T> void notifyTableChanged(@NonNull Table<T> table) {
+        notifyTableChanged(table, null);
+    }
+
+    int applyBatch(@NonNull List<BatchOperation> operations) {
+        int[] counts = mDataSource.applyBatch(operations);
+        int total = 0;
+        Set<Table<?>> changedTables = new LinkedHashSet<>();
+        for (int i = 0; i < counts.length; i++) {
+            total += counts[i];
+            if (counts[i] > 0) {
+                changedTables.add(operations.get(i).getTable());
+            }
+        }
+        for (Table<?> table : changedTables) {
+            onTableWritten(table, null);
+        }
+        return total;
+    }
+
+    /**
+     * @param table  - changed table
+     * @param rowIds - ids of changed rows or null if they are unknown
+     */
+    private void onTableWritten(@NonNull Table<?> table, @Nullable Set<Long> rowIds) {
+        invalidateCaches(table);
+        TransactionState state = mTransactionState.get();
+        if (state != null) {
+            state.mWrittenTables.add(table);
+        }
+        if (!mIsAutomaticNotificationsEnabled) {
+            return;
+        }
+        if (state != null) {
+            state.addChange(table, rowIds);
+        } else {
+            notifyTableChanged(table, rowIds);
+        }
+    }
+
+    private void invalidateCaches(@NonNull Table<?> table) {
+        QueryCache cache = mQueryCache;
+        if (cache != null) {
+            cache.invalidate(table);
+        }
+        IdentityMap identityMap = mIdentityMap;
+        if (identityMap != null) {
+            identityMap.invalidate(table);
+        }
+    }
+
+    private void notifyTableChanged(@NonNull Table<?> table, @Nullable Set<Long> rowIds) {
+        invalidateCaches(table);
         mContext.getContentResolver().notifyChange(table.getUri(), null);
+        if (mObservers.hasRowObservers(table)) {
+            mContext.getContentResolver().notifyChange(Observers.getRowsUri(table, rowIds), null);
+        }
+    }
+
+    /**
+     * Only the first row is read, so the database can stop after it, if where doesn't limit rows itself
+     *
+     * @return where with the limit
+     */
+    @NonNull
+    private static Where limitSingle(@NonNull Where where) {
+        return where.getLimit() == null ? where.copy().limit(1) : where;
+    }
+
+    /**
+     * Ids of changed rows are queried in the same transaction as the write, so the concurrent writer
+     * can't change the set of matched rows between them. Transaction is possible only with the provider
+     * in this process, otherwise ids are queried right before the write.
+     *
+     * @return true if update or delete must run in the transaction
+     */
+    private boolean isChangedRowsTransactionRequired(@NonNull Table<?> table) {
+        return isRowChangeObserved(table) && mTransactionState.get() == null
+                && SQLiteContentProvider.hasDatabaseDataSource();
+    }
+
+    private boolean isRowChangeObserved(@NonNull Table<?> table) {
+        return mIsAutomaticNotificationsEnabled && mObservers.hasRowObservers(table);
+    }
+
+    /**
+     * Insert replaces conflicting rows, so besides the inserted row it can silently delete another one.
+     * Such row is known only if it has the same rowid, so the inserted row is reported only
+     * if the table has no unique constraints except INTEGER PRIMARY KEY.
+     *
+     * @return id of inserted row or null if the whole table must be considered changed
+     */
+    @Nullable
+    private Set<Long> getInsertedRowIds(@NonNull Table<?> table, @NonNull Uri uri) {
+        if (!isRowChangeObserved(table)) {
+            return null;
+        }
+        long rowId = ContentUris.parseId(uri);
+        if (rowId < 0 || !isReplacingOnlyByRowId(table)) {
+            return null;
+        }
+        return Collections.singleton(rowId);
+    }
+
+    /**
+     * Unique indexes are read only when the database is available in this process,
+     * otherwise it's impossible to check them and the table is considered unsafe.
+     */
+    private boolean isReplacingOnlyByRowId(@NonNull Table<?> table) {
+        String tableName = table.getTableName();
+        Boolean cached = mReplacingByRowIdTables.get(tableName);
+        if (cached != null) {
+            return cached;
+        }
+        if (!SQLiteContentProvider.hasDatabaseDataSource()) {
+            return false;
+        }
+
+        boolean result = true;
+        SQLiteDatabase database = SQLiteContentProvider.getDatabaseDataSource().getWritableDatabase();
+        Cursor cursor = database.rawQuery("PRAGMA index_list(" + tableName + ")", null);
+        try {
+            int uniqueIndex = cursor.getColumnIndexOrThrow("unique");
+            while (cursor.moveToNext()) {
+                if (cursor.getInt(uniqueIndex) != 0) {
+                    result = false;
+                    break;
+                }
+            }
+        } finally {
+            SQLiteUtils.safeCloseCursor(cursor);
+        }
+        mReplacingByRowIdTables.put(tableName, result);
+        return result;
+    }
+
+    /**
+     * Rows, which are going to be updated or deleted, are queried only if someone observes them
+     *
+     * @return ids of rows which satisfy where parameter or null if nobody needs them
+     */
+    @Nullable
+    private Set<Long> queryChangedRowIds(@NonNull Table<?> table, @NonNull Where where) {
+        if (!isRowChangeObserved(table)) {
+            return null;
+        }
+        Set<Long> rowIds = new HashSet<>();
+        // update and delete ignore order and limit, so they are ignored here too
+        Cursor cursor = mDataSource.query(table, new String[]{"_rowid_"}, where.copySelection(), null);
+        try {
+            if (SQLiteUtils.isEmptyCursor(cursor)) {
+                return rowIds;
+            }
+            do {
+                rowIds.add(cursor.getLong(0));
+            } while (cursor.moveToNext());
+            return rowIds;
+        } finally {
+            SQLiteUtils.safeCloseCursor(cursor);
+        }
     }
 
     /**
@@ -328,4 +1231,38 @@ public class SQLite {
     public ContentResolver getContentResolver() {
         return mContext.getContentResolver();
     }
+
+    private static class TransactionState {
+
+        /**
+         * Changed tables with ids of changed rows, null value means that rows are unknown
+         */
+        private final Map<Table<?>, Set<Long>> mChanges = new LinkedHashMap<>();
+
+        /**
+         * All tables written in the transaction, even if automatic notifications are disabled
+         */
+        private final Set<Table<?>> mWrittenTables = new LinkedHashSet<>();
+
+        /**
+         * Failure of the nested transaction, which marks the whole transaction as failed
+         */
+        private Throwable mNestedError;
+
+        void addChange(@NonNull Table<?> table, @Nullable Set<Long> rowIds) {
+            if (!mChanges.containsKey(table)) {
+                mChanges.put(table, rowIds == null ? null : new HashSet<>(rowIds));
+                return;
+            }
+            Set<Long> changedRows = mChanges.get(table);
+            if (changedRows == null) {
+                return;
+            }
+            if (rowIds == null) {
+                mChanges.put(table, null);
+            } else {
+                changedRows.addAll(rowIds);
+            }
+        }
+    }
 }
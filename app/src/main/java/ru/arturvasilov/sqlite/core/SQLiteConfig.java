@@ -1,8 +1,10 @@
 package ru.arturvasilov.sqlite.core;
 
-import android.content.Context;
-import android.content.SharedPreferences;
+import android.database.Cursor;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.sqlite.database.sqlite.SQLiteDatabase;
 
 /**
  * Configuration class for SQLite database
@@ -11,25 +13,65 @@ import android.support.annotation.NonNull;
  */
 public class SQLiteConfig {
 
-    private static final String PREFS_NAME = "sqlite_config_prefs";
+    /**
+     * Journal modes of the database, see <a href="https://www.sqlite.org/pragma.html#pragma_journal_mode">docs</a>
+     */
+    public enum JournalMode {
+        DELETE,
+        TRUNCATE,
+        PERSIST,
+        MEMORY,
+        WAL,
+        OFF
+    }
+
+    /**
+     * Levels of the synchronization with disk,
+     * see <a href="https://www.sqlite.org/pragma.html#pragma_synchronous">docs</a>
+     */
+    public enum Synchronous {
+        OFF,
+        NORMAL,
+        FULL,
+        EXTRA
+    }
+
+    /**
+     * Storages for temporary tables and indices,
+     * see <a href="https://www.sqlite.org/pragma.html#pragma_temp_store">docs</a>
+     */
+    public enum TempStore {
+        DEFAULT,
+        FILE,
+        MEMORY
+    }
 
-    private static final String DATABASE_NAME_KEY = "database_name";
-    private static final String AUTHORITY_KEY = "authority";
+    private static final int NOT_SET = -1;
+
+    private static final int DEFAULT_READ_CONNECTION_POOL_SIZE = 2;
 
     private static final String DEFAULT_DATABASE_NAME = "ru.sqlite.database.database";
     private static final String DEFAULT_AUTHORITY = "ru.sqlite.database";
 
-    private final Context mContext;
-
     private String mDatabaseName;
     private String mAuthority;
 
-    SQLiteConfig(Context context) {
-        mContext = context;
+    private JournalMode mJournalMode;
+    private Synchronous mSynchronous;
+    private TempStore mTempStore;
+    private int mPageSize = NOT_SET;
+    private int mCacheSize;
+    private boolean mIsCacheSizeSet;
+    private long mMmapSize = NOT_SET;
+    private int mBusyTimeoutMillis = NOT_SET;
+    private int mReadConnectionPoolSize = NOT_SET;
+    private boolean mIsWarmUpOnCreate;
 
-        SharedPreferences prefs = getPrefs();
-        mDatabaseName = prefs.getString(DATABASE_NAME_KEY, DEFAULT_DATABASE_NAME);
-        mAuthority = prefs.getString(AUTHORITY_KEY, DEFAULT_AUTHORITY);
+    /**
+     * Name and authority, which are not set explicitly, fall back to the constant defaults,
+     * so the provider doesn't touch the disk in onCreate on the main thread
+     */
+    SQLiteConfig() {
     }
 
     /**
@@ -46,18 +88,189 @@ public class SQLiteConfig {
         mAuthority = uri;
     }
 
+    /**
+     * WAL mode allows readers to work in parallel with the writer. By default SQLite uses the platform journal mode.
+     * <p/>
+     * In WAL mode queries use the pool of read connections, see {@link SQLiteConfig#setReadConnectionPoolSize(int)}.
+     *
+     * @param journalMode - journal mode of the database
+     */
+    public void setJournalMode(@NonNull JournalMode journalMode) {
+        mJournalMode = journalMode;
+    }
+
+    /**
+     * NORMAL is safe for WAL mode and makes commits much cheaper than FULL
+     *
+     * @param synchronous - level of the synchronization with disk
+     */
+    public void setSynchronous(@NonNull Synchronous synchronous) {
+        mSynchronous = synchronous;
+    }
+
+    /**
+     * Page size is applied only when the database is created
+     *
+     * @param pageSize - size of the database page in bytes, power of two between 512 and 65536
+     */
+    public void setPageSize(int pageSize) {
+        if (pageSize < 512 || pageSize > 65536 || (pageSize & (pageSize - 1)) != 0) {
+            throw new IllegalArgumentException("Page size must be a power of two between 512 and 65536");
+        }
+        mPageSize = pageSize;
+    }
+
+    /**
+     * @param cacheSize - count of pages in the cache if positive or the cache size in KiB if negative
+     */
+    public void setCacheSize(int cacheSize) {
+        mCacheSize = cacheSize;
+        mIsCacheSizeSet = true;
+    }
+
+    /**
+     * Memory-mapped I/O allows to read the database without the read system calls
+     *
+     * @param mmapSize - max size of the database file in bytes, which is mapped into memory, 0 to disable
+     */
+    public void setMmapSize(long mmapSize) {
+        if (mmapSize < 0) {
+            throw new IllegalArgumentException("Mmap size can't be negative");
+        }
+        mMmapSize = mmapSize;
+    }
+
+    /**
+     * @param tempStore - storage for temporary tables and indices
+     */
+    public void setTempStore(@NonNull TempStore tempStore) {
+        mTempStore = tempStore;
+    }
+
+    /**
+     * @param busyTimeoutMillis - time to wait for the lock of the database before failing with SQLITE_BUSY
+     */
+    public void setBusyTimeout(int busyTimeoutMillis) {
+        if (busyTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Busy timeout can't be negative");
+        }
+        mBusyTimeoutMillis = busyTimeoutMillis;
+    }
+
+    /**
+     * Queries are executed in the pool of read-only connections in parallel with each other and with the writer,
+     * while all writes use the single writer connection.
+     * <p/>
+     * Pool works only in WAL mode, so WAL is enabled if journal mode is not specified.
+     * In WAL mode the pool of 2 connections is used by default, in other modes all operations use the writer connection.
+     * <p/>
+     * Note: cache size, mmap size, temp store and busy timeout are applied to the writer and to each connection
+     * of the pool. If the pool is disabled in WAL mode, queries run in the read connections of the platform,
+     * which can't be configured and keep SQLite defaults for these settings.
+     *
+     * @param poolSize - count of read-only connections, 0 to disable the pool
+     */
+    public void setReadConnectionPoolSize(int poolSize) {
+        if (poolSize < 0) {
+            throw new IllegalArgumentException("Pool size can't be negative");
+        }
+        mReadConnectionPoolSize = poolSize;
+    }
+
+    /**
+     * By default the database is opened (and created or upgraded) on the first operation.
+     * With warm-up it's opened in the background thread right after the provider is created,
+     * so the first operation doesn't wait for it, while the main thread is still not blocked.
+     *
+     * @param warmUpOnCreate - true to open the database in the background when the provider is created
+     */
+    public void setWarmUpOnCreate(boolean warmUpOnCreate) {
+        mIsWarmUpOnCreate = warmUpOnCreate;
+    }
+
+    boolean isWarmUpOnCreate() {
+        return mIsWarmUpOnCreate;
+    }
+
     @NonNull
     String getDatabaseName() {
-        return mDatabaseName;
+        return mDatabaseName == null ? DEFAULT_DATABASE_NAME : mDatabaseName;
     }
 
     @NonNull
     String getAuthority() {
-        return mAuthority;
+        return mAuthority == null ? DEFAULT_AUTHORITY : mAuthority;
     }
 
-    @NonNull
-    private SharedPreferences getPrefs() {
-        return mContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    /**
+     * Applies all the specified settings to the connection. Values, which were not set, keep SQLite defaults.
+     *
+     * @param database - database, which is being configured
+     */
+    void configure(@NonNull SQLiteDatabase database) {
+        if (mPageSize != NOT_SET) {
+            executePragma(database, "page_size = " + mPageSize);
+        }
+        JournalMode journalMode = getJournalMode();
+        if (journalMode == JournalMode.WAL) {
+            database.enableWriteAheadLogging();
+        } else if (journalMode != null) {
+            database.disableWriteAheadLogging();
+            executePragma(database, "journal_mode = " + journalMode.name());
+        }
+        if (mSynchronous != null) {
+            executePragma(database, "synchronous = " + mSynchronous.name());
+        }
+        configureReader(database);
+    }
+
+    /**
+     * Applies settings, which make sense for the read-only connection
+     *
+     * @param database - connection, which is being configured
+     */
+    void configureReader(@NonNull SQLiteDatabase database) {
+        if (mIsCacheSizeSet) {
+            executePragma(database, "cache_size = " + mCacheSize);
+        }
+        if (mMmapSize != NOT_SET) {
+            executePragma(database, "mmap_size = " + mMmapSize);
+        }
+        if (mTempStore != null) {
+            executePragma(database, "temp_store = " + mTempStore.name());
+        }
+        if (mBusyTimeoutMillis != NOT_SET) {
+            executePragma(database, "busy_timeout = " + mBusyTimeoutMillis);
+        }
+    }
+
+    /**
+     * @return count of read-only connections or 0 if reads should use the writer connection
+     */
+    int getReadConnectionPoolSize() {
+        if (getJournalMode() != JournalMode.WAL) {
+            return 0;
+        }
+        return mReadConnectionPoolSize == NOT_SET ? DEFAULT_READ_CONNECTION_POOL_SIZE : mReadConnectionPoolSize;
+    }
+
+    @Nullable
+    private JournalMode getJournalMode() {
+        if (mJournalMode == null && mReadConnectionPoolSize > 0) {
+            return JournalMode.WAL;
+        }
+        return mJournalMode;
+    }
+
+    /**
+     * Some pragmas return the new value, so they can't be executed with {@link SQLiteDatabase#execSQL(String)}
+     */
+    private static void executePragma(@NonNull SQLiteDatabase database, @NonNull String pragma) {
+        Cursor cursor = database.rawQuery("PRAGMA " + pragma, null);
+        try {
+            cursor.moveToFirst();
+        } finally {
+            cursor.close();
+        }
     }
 }
@@ -1,16 +1,22 @@
 package ru.arturvasilov.sqlite.core;
 
 import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentUris;
 import android.content.ContentValues;
+import android.content.OperationApplicationException;
 import android.database.Cursor;
 import android.net.Uri;
+import android.os.CancellationSignal;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
 
 import org.sqlite.database.sqlite.SQLiteDatabase;
 
+import java.util.ArrayList;
+
 /**
  * This class provides implementation for all operations in ContentProvider
  * and based on SQLite database.
@@ -18,19 +24,32 @@ import org.sqlite.database.sqlite.SQLiteDatabase;
  * You only have to implement two methods {@link SQLiteContentProvider#prepareConfig(SQLiteConfig)}
  * and {@link SQLiteContentProvider#prepareSchema(SQLiteSchema)}, the rest is handled by the library.
  *
+ * Provider is created on the main thread at the start of the process, so it doesn't open the database here:
+ * native library is loaded in the background and the database is opened on the first operation
+ * or in the background, if {@link SQLiteConfig#setWarmUpOnCreate(boolean)} is enabled.
+ *
  * @author Artur Vasilov
  */
 public abstract class SQLiteContentProvider extends ContentProvider {
 
+    /**
+     * Query parameters of the uri, which are used for the parts of the query unsupported by ContentResolver
+     */
+    static final String PARAMETER_DISTINCT = "distinct";
+    static final String PARAMETER_GROUP_BY = "group_by";
+    static final String PARAMETER_LIMIT = "limit";
+    static final String PARAMETER_OFFSET = "offset";
+
     private SQLiteSchema mSchema;
 
-    private SQLiteHelper mSQLiteHelper;
+    private DatabaseDataSource mDataSource;
 
     private static String sContentAuthority;
     private static Uri sBaseUri;
+    private static DatabaseDataSource sDataSource;
 
     /**
-     * In this method you can specify configuration for your database (for this moment only name and authority)
+     * In this method you can specify configuration for your database: name, authority and tuning of the engine
      *
      * @param config - configuration for SQLite database
      */
@@ -46,7 +65,9 @@ public abstract class SQLiteContentProvider extends ContentProvider {
 
     @Override
     public final boolean onCreate() {
-        SQLiteConfig config = new SQLiteConfig(getContext());
+        NativeLibrary.loadAsync();
+
+        SQLiteConfig config = new SQLiteConfig();
         prepareConfig(config);
 
         sContentAuthority = config.getAuthority();
@@ -55,10 +76,23 @@ public abstract class SQLiteContentProvider extends ContentProvider {
         mSchema = new SQLiteSchema();
         prepareSchema(mSchema);
 
-        mSQLiteHelper = new SQLiteHelper(getContext(), config, mSchema);
+        SQLiteHelper sqLiteHelper = new SQLiteHelper(getContext(), config, mSchema);
+        int poolSize = config.getReadConnectionPoolSize();
+        ReadConnectionPool readConnectionPool = poolSize > 0
+                ? new ReadConnectionPool(sqLiteHelper, config, poolSize) : null;
+        mDataSource = sDataSource = new DatabaseDataSource(sqLiteHelper, readConnectionPool);
+        if (config.isWarmUpOnCreate()) {
+            warmUp(mDataSource);
+        }
         return true;
     }
 
+    @Override
+    public void shutdown() {
+        mDataSource.close();
+        super.shutdown();
+    }
+
     @Nullable
     @Override
     public final String getType(@NonNull Uri uri) {
@@ -68,81 +102,133 @@ public abstract class SQLiteContentProvider extends ContentProvider {
     @Nullable
     @Override
     public final Cursor query(@NonNull Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder) {
-        SQLiteDatabase database = mSQLiteHelper.getWritableDatabase();
+        return query(uri, projection, selection, selectionArgs, sortOrder, null);
+    }
+
+    @Nullable
+    @Override
+    public final Cursor query(@NonNull Uri uri, String[] projection, String selection, String[] selectionArgs,
+                              String sortOrder, CancellationSignal cancellationSignal) {
         String table = getType(uri);
         if (TextUtils.isEmpty(table)) {
             throw new IllegalArgumentException("No such table to query");
         } else {
-            return database.query(table,
-                    projection,
-                    selection,
-                    selectionArgs,
-                    null,
-                    null,
-                    sortOrder);
+            boolean distinct = "1".equals(uri.getQueryParameter(PARAMETER_DISTINCT));
+            return mDataSource.query(table, projection, distinct, selection, selectionArgs,
+                    checkColumns(uri.getQueryParameter(PARAMETER_GROUP_BY), PARAMETER_GROUP_BY), sortOrder,
+                    checkInteger(uri.getQueryParameter(PARAMETER_LIMIT), PARAMETER_LIMIT),
+                    checkInteger(uri.getQueryParameter(PARAMETER_OFFSET), PARAMETER_OFFSET),
+                    cancellationSignal);
         }
     }
 
     @NonNull
     @Override
     public final Uri insert(@NonNull Uri uri, ContentValues values) {
-        SQLiteDatabase database = mSQLiteHelper.getWritableDatabase();
         String table = getType(uri);
         if (TextUtils.isEmpty(table)) {
             throw new IllegalArgumentException("No such table to insert");
         } else {
-            long id = database.insertWithOnConflict(table, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            long id = mDataSource.insert(table, values);
             return ContentUris.withAppendedId(uri, id);
         }
     }
 
     @Override
     public final int bulkInsert(@NonNull Uri uri, @NonNull ContentValues[] values) {
-        SQLiteDatabase database = mSQLiteHelper.getWritableDatabase();
         String table = getType(uri);
         if (TextUtils.isEmpty(table)) {
             throw new IllegalArgumentException("No such table to insert");
         } else {
-            int numInserted = 0;
-            database.beginTransaction();
-            try {
-                for (ContentValues contentValues : values) {
-                    long id = database.insertWithOnConflict(table, null, contentValues, SQLiteDatabase.CONFLICT_REPLACE);
-                    if (id > 0) {
-                        numInserted++;
-                    }
-                }
-                database.setTransactionSuccessful();
-            } finally {
-                database.endTransaction();
-            }
-            return numInserted;
+            return mDataSource.bulkInsert(table, values);
         }
     }
 
     @Override
     public final int delete(@NonNull Uri uri, String selection, String[] selectionArgs) {
-        SQLiteDatabase database = mSQLiteHelper.getWritableDatabase();
         String table = getType(uri);
         if (TextUtils.isEmpty(table)) {
             throw new IllegalArgumentException("No such table to delete");
         } else {
-            return database.delete(table, selection, selectionArgs);
+            return mDataSource.delete(table, selection, selectionArgs);
         }
     }
 
     @Override
     public final int update(@NonNull Uri uri, ContentValues values,
                       String selection, String[] selectionArgs) {
-        SQLiteDatabase database = mSQLiteHelper.getWritableDatabase();
         String table = getType(uri);
         if (TextUtils.isEmpty(table)) {
             throw new IllegalArgumentException("No such table to update");
         } else {
-            return database.update(table, values, selection, selectionArgs);
+            return mDataSource.update(table, values, selection, selectionArgs);
         }
     }
 
+    /**
+     * All operations are applied in a single transaction, so either all of them succeed or none of them
+     */
+    @NonNull
+    @Override
+    public final ContentProviderResult[] applyBatch(@NonNull ArrayList<ContentProviderOperation> operations)
+            throws OperationApplicationException {
+        SQLiteDatabase database = mDataSource.getWritableDatabase();
+        database.beginTransaction();
+        try {
+            ContentProviderResult[] results = super.applyBatch(operations);
+            database.setTransactionSuccessful();
+            return results;
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    private static void warmUp(@NonNull final DatabaseDataSource dataSource) {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    dataSource.getWritableDatabase();
+                } catch (RuntimeException ignored) {
+                    // the same error will be thrown to the first operation, which is able to handle it
+                }
+            }
+        }, "SQLite-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Parameters of the uri are put into SQL as is, so only integers are allowed for them
+     */
+    @Nullable
+    private static String checkInteger(@Nullable String value, @NonNull String parameter) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return String.valueOf(Long.parseLong(value));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parameter " + parameter + " must be an integer: " + value);
+        }
+    }
+
+    /**
+     * Parameters of the uri are put into SQL as is, so only comma-separated column names are allowed for them
+     */
+    @Nullable
+    private static String checkColumns(@Nullable String value, @NonNull String parameter) {
+        if (value == null) {
+            return null;
+        }
+        for (String column : value.split(",")) {
+            if (!Where.isColumnName(column)) {
+                throw new IllegalArgumentException("Parameter " + parameter + " must contain only column names: " + value);
+            }
+        }
+        return value;
+    }
+
     @NonNull
     static String getContentAuthority() {
         return sContentAuthority;
@@ -152,4 +238,25 @@ public abstract class SQLiteContentProvider extends ContentProvider {
     static Uri getBaseUri() {
         return sBaseUri;
     }
+
+    /**
+     * Direct access to the database is only possible when the provider lives in the same process as a caller
+     *
+     * @return data source which is used by the provider to work with the database
+     */
+    @NonNull
+    static DatabaseDataSource getDatabaseDataSource() {
+        if (sDataSource == null) {
+            throw new IllegalStateException("SQLiteContentProvider is not created in this process, " +
+                    "direct access to the database is impossible");
+        }
+        return sDataSource;
+    }
+
+    /**
+     * @return true if the provider is created in this process, so {@link SQLiteContentProvider#getDatabaseDataSource()} can be used
+     */
+    static boolean hasDatabaseDataSource() {
+        return sDataSource != null;
+    }
 }
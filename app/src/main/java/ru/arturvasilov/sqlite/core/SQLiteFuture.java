@@ -0,0 +1,129 @@
+package ru.arturvasilov.sqlite.core;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Result of the operation, which is executed by {@link AsyncSQLite}.
+ * <p/>
+ * You can either block on {@link SQLiteFuture#get()} in the background thread
+ * or add callback, which is called on the main thread when the operation completes:
+ * <pre>
+ * {code
+ * AsyncSQLite.get().query(PersonTable.TABLE, Where.create().greaterThan(PersonTable.AGE, 18))
+ *         .addCallback(new AsyncCallback<List<Person>>() {
+ *             public void onSuccess(List<Person> persons) {
+ *                 // show persons
+ *             }
+ *
+ *             public void onError(Throwable error) {
+ *                 // show error
+ *             }
+ *         });
+ * }
+ * </pre>
+ * Callback added after the completion is called immediately (but still through the main thread queue).
+ *
+ * @author Artur Vasilov
+ */
+public class SQLiteFuture<T> extends FutureTask<T> {
+
+    private final Callable<T> mCallable;
+
+    private final List<AsyncCallback<? super T>> mCallbacks = new ArrayList<>();
+
+    private boolean mIsDone;
+
+    private T mDeferredResult;
+    private Exception mDeferredError;
+
+    SQLiteFuture(@NonNull Callable<T> callable) {
+        super(callable);
+        mCallable = callable;
+    }
+
+    /**
+     * @param callback - callback to call on the main thread with the result of the operation
+     * @return this future for chaining
+     */
+    @NonNull
+    public SQLiteFuture<T> addCallback(@NonNull AsyncCallback<? super T> callback) {
+        synchronized (mCallbacks) {
+            if (!mIsDone) {
+                mCallbacks.add(callback);
+                return this;
+            }
+        }
+        deliver(callback);
+        return this;
+    }
+
+    /**
+     * Runs the operation, but keeps its' result until {@link SQLiteFuture#publish()},
+     * e.g. until the transaction with this operation is committed
+     */
+    void runDeferred() {
+        if (isCancelled()) {
+            return;
+        }
+        try {
+            mDeferredResult = mCallable.call();
+        } catch (Exception e) {
+            mDeferredError = e;
+        }
+    }
+
+    /**
+     * Completes the future with the result of {@link SQLiteFuture#runDeferred()}
+     */
+    void publish() {
+        if (mDeferredError != null) {
+            setException(mDeferredError);
+        } else {
+            set(mDeferredResult);
+        }
+    }
+
+    void fail(@NonNull Throwable error) {
+        setException(error);
+    }
+
+    @Override
+    protected void done() {
+        List<AsyncCallback<? super T>> callbacks;
+        synchronized (mCallbacks) {
+            mIsDone = true;
+            callbacks = new ArrayList<>(mCallbacks);
+            mCallbacks.clear();
+        }
+        for (AsyncCallback<? super T> callback : callbacks) {
+            deliver(callback);
+        }
+    }
+
+    private void deliver(@NonNull final AsyncCallback<? super T> callback) {
+        MainHandler.getHandler().post(new Runnable() {
+            @Override
+            public void run() {
+                T result;
+                try {
+                    result = get();
+                } catch (ExecutionException e) {
+                    callback.onError(e.getCause() == null ? e : e.getCause());
+                    return;
+                } catch (CancellationException | InterruptedException e) {
+                    callback.onError(e);
+                    return;
+                }
+                callback.onSuccess(result);
+            }
+        });
+    }
+
+}
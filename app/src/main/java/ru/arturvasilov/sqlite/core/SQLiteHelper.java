@@ -3,22 +3,58 @@ package ru.arturvasilov.sqlite.core;
 import android.content.Context;
 import android.support.annotation.NonNull;
 
+import java.io.File;
+
 import org.sqlite.database.sqlite.SQLiteDatabase;
 import org.sqlite.database.sqlite.SQLiteOpenHelper;
 
 import ru.arturvasilov.sqlite.rx.RxSQLite;
 
 /**
+ * Nothing is opened in the constructor, so it's cheap to create the helper on the main thread.
+ * Database is opened on the first access, after the native library is loaded.
+ *
  * @author Artur Vasilov
  */
 class SQLiteHelper extends SQLiteOpenHelper {
 
+    private final SQLiteConfig mConfig;
+
     private final SQLiteSchema mSchema;
 
+    private final File mDatabaseFile;
+
+    private volatile boolean mIsPrepared;
+
     public SQLiteHelper(Context context, @NonNull SQLiteConfig config, @NonNull SQLiteSchema schema) {
-        super(context, context.getDatabasePath(config.getDatabaseName()).getPath(), null, schema.calculateVersion());
+        this(context, config, schema, context.getDatabasePath(config.getDatabaseName()));
+    }
+
+    private SQLiteHelper(Context context, @NonNull SQLiteConfig config, @NonNull SQLiteSchema schema,
+                         @NonNull File databaseFile) {
+        super(context, databaseFile.getPath(), null, schema.calculateVersion());
+        mConfig = config;
         mSchema = schema;
-        context.openOrCreateDatabase(config.getDatabaseName(), 0, null, null);
+        mDatabaseFile = databaseFile;
+    }
+
+    @Override
+    public SQLiteDatabase getWritableDatabase() {
+        if (!mIsPrepared) {
+            NativeLibrary.await();
+            // database is opened by the path, so its' directory must exist
+            File directory = mDatabaseFile.getParentFile();
+            if (directory != null && !directory.exists() && !directory.mkdirs() && !directory.exists()) {
+                throw new IllegalStateException("Failed to create directory for the database: " + directory);
+            }
+            mIsPrepared = true;
+        }
+        return super.getWritableDatabase();
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase database) {
+        mConfig.configure(database);
     }
 
     @Override
@@ -0,0 +1,173 @@
+package ru.arturvasilov.sqlite.core;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Difference between two versions of the table content, which is delivered to the {@link DiffTableObserver}
+ *
+ * @author Artur Vasilov
+ */
+public class TableDiff<T> {
+
+    private final List<T> mItems;
+    private final List<T> mInserted;
+    private final List<T> mRemoved;
+    private final List<T> mChanged;
+    private final List<T> mMoved;
+
+    private TableDiff(@NonNull List<T> items, @NonNull List<T> inserted, @NonNull List<T> removed,
+                      @NonNull List<T> changed, @NonNull List<T> moved) {
+        mItems = Collections.unmodifiableList(items);
+        mInserted = Collections.unmodifiableList(inserted);
+        mRemoved = Collections.unmodifiableList(removed);
+        mChanged = Collections.unmodifiableList(changed);
+        mMoved = Collections.unmodifiableList(moved);
+    }
+
+    /**
+     * Calculates the difference between two lists in O(n log n) time.
+     * <p/>
+     * Moved items are the minimal set of items, which have to be moved to restore the new order
+     * (all other common items keep their relative order).
+     *
+     * @param oldItems - previous content
+     * @param newItems - current content
+     * @param observer - source of the item keys
+     * @return difference between lists
+     */
+    @NonNull
+    static <T> TableDiff<T> calculate(@NonNull List<T> oldItems, @NonNull List<T> newItems,
+                                      @NonNull DiffTableObserver<T> observer) {
+        Map<Object, Integer> oldPositions = new HashMap<>();
+        for (int i = 0; i < oldItems.size(); i++) {
+            oldPositions.put(observer.getKey(oldItems.get(i)), i);
+        }
+
+        List<T> inserted = new ArrayList<>();
+        List<T> changed = new ArrayList<>();
+        List<T> common = new ArrayList<>();
+        List<Integer> commonOldPositions = new ArrayList<>();
+        boolean[] isKept = new boolean[oldItems.size()];
+        for (T item : newItems) {
+            Integer oldPosition = oldPositions.get(observer.getKey(item));
+            if (oldPosition == null) {
+                inserted.add(item);
+                continue;
+            }
+            isKept[oldPosition] = true;
+            common.add(item);
+            commonOldPositions.add(oldPosition);
+            if (!item.equals(oldItems.get(oldPosition))) {
+                changed.add(item);
+            }
+        }
+
+        List<T> removed = new ArrayList<>();
+        for (int i = 0; i < oldItems.size(); i++) {
+            if (!isKept[i]) {
+                removed.add(oldItems.get(i));
+            }
+        }
+
+        boolean[] isInOrder = longestIncreasingSubsequence(commonOldPositions);
+        List<T> moved = new ArrayList<>();
+        for (int i = 0; i < common.size(); i++) {
+            if (!isInOrder[i]) {
+                moved.add(common.get(i));
+            }
+        }
+
+        return new TableDiff<>(newItems, inserted, removed, changed, moved);
+    }
+
+    /**
+     * @return flags for elements, which belong to one of the longest increasing subsequences
+     */
+    @NonNull
+    private static boolean[] longestIncreasingSubsequence(@NonNull List<Integer> values) {
+        int size = values.size();
+        // tails[k] - index of the smallest tail of increasing subsequence with length k + 1
+        int[] tails = new int[size];
+        int[] previous = new int[size];
+        int length = 0;
+        for (int i = 0; i < size; i++) {
+            int value = values.get(i);
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (values.get(tails[middle]) < value) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            previous[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+
+        boolean[] result = new boolean[size];
+        int index = length > 0 ? tails[length - 1] : -1;
+        while (index >= 0) {
+            result[index] = true;
+            index = previous[index];
+        }
+        return result;
+    }
+
+    /**
+     * @return current content of the table
+     */
+    @NonNull
+    public List<T> getItems() {
+        return mItems;
+    }
+
+    /**
+     * @return new items, in the order of the current content
+     */
+    @NonNull
+    public List<T> getInserted() {
+        return mInserted;
+    }
+
+    /**
+     * @return items which are not in the table anymore (their previous versions)
+     */
+    @NonNull
+    public List<T> getRemoved() {
+        return mRemoved;
+    }
+
+    /**
+     * @return new versions of items, which are not equal to their previous versions
+     */
+    @NonNull
+    public List<T> getChanged() {
+        return mChanged;
+    }
+
+    /**
+     * @return items which have changed their position relatively to other items
+     */
+    @NonNull
+    public List<T> getMoved() {
+        return mMoved;
+    }
+
+    /**
+     * @return true if content of the table hasn't changed
+     */
+    public boolean isEmpty() {
+        return mInserted.isEmpty() && mRemoved.isEmpty() && mChanged.isEmpty() && mMoved.isEmpty();
+    }
+}
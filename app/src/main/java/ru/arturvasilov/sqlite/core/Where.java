@@ -13,7 +13,10 @@ import java.util.List;
  * <p/>
  * If there is no method that you need, you can always construct query manually with {@link Where#where(String, Object...)}.
  * <p/>
- * Class also supports LIMIT and OFFSET with methods {@link Where#limit(int)} and {@link Where#offset(int)} respectively.
+ * Class also supports LIMIT and OFFSET with methods {@link Where#limit(int)} and {@link Where#offset(int)} respectively,
+ * ORDER BY with {@link Where#orderBy(String)} and {@link Where#orderByDescending(String)},
+ * GROUP BY with {@link Where#groupBy(String...)} and SELECT DISTINCT with {@link Where#distinct()}.
+ * All of them are executed by the database, so the query with index for the order reads only the rows it returns.
  * <p/>
  * Typical usage of this class looks like this:
  * <pre>
@@ -38,12 +41,20 @@ public class Where {
 
     private final List<Object> mBindValues;
 
+    private final List<String> mOrderBy;
+
+    private final List<String> mGroupBy;
+
+    private boolean mIsDistinct;
+
     private String mLimit;
     private String mOffset;
 
     private Where() {
         mWhereBuilder = new StringBuilder();
         mBindValues = new ArrayList<>();
+        mOrderBy = new ArrayList<>();
+        mGroupBy = new ArrayList<>();
     }
 
     @NonNull
@@ -159,6 +170,48 @@ public class Where {
         return this;
     }
 
+    /**
+     * Sorts rows by the column in ascending order. Order of calls defines the priority of columns.
+     */
+    @NonNull
+    public Where orderBy(@NonNull String column) {
+        mOrderBy.add(column);
+        return this;
+    }
+
+    /**
+     * Sorts rows by the column in descending order. Order of calls defines the priority of columns.
+     */
+    @NonNull
+    public Where orderByDescending(@NonNull String column) {
+        mOrderBy.add(column + " DESC");
+        return this;
+    }
+
+    /**
+     * Groups rows by the columns. Only column names are allowed,
+     * expressions throw {@link IllegalArgumentException} with both direct access and the ContentResolver.
+     */
+    @NonNull
+    public Where groupBy(@NonNull String... columns) {
+        for (String column : columns) {
+            if (!isColumnName(column)) {
+                throw new IllegalArgumentException("Only column names are allowed in GROUP BY: " + column);
+            }
+        }
+        Collections.addAll(mGroupBy, columns);
+        return this;
+    }
+
+    /**
+     * Removes duplicate rows from the result
+     */
+    @NonNull
+    public Where distinct() {
+        mIsDistinct = true;
+        return this;
+    }
+
     @Nullable
     public String where() {
         if (mWhereBuilder.length() == 0) {
@@ -169,12 +222,44 @@ public class Where {
 
     @Nullable
     public String[] whereArgs() {
+        return toStrings(bindValues());
+    }
+
+    /**
+     * Values keep their types, so they are bound natively when SQLite works with the database directly
+     *
+     * @return values for the arguments of where or null if there are no arguments
+     */
+    @Nullable
+    Object[] bindValues() {
         if (mBindValues.isEmpty()) {
             return null;
         }
-        String[] args = new String[mBindValues.size()];
-        for (int i = 0; i < mBindValues.size(); i++) {
-            args[i] = String.valueOf(mBindValues.get(i));
+        return mBindValues.toArray();
+    }
+
+    /**
+     * Values are converted in the same way as they are bound with direct access to the database,
+     * so the same where selects the same rows in both modes: booleans become 1 and 0.
+     * Blobs can't be passed through the ContentResolver, so they throw {@link IllegalArgumentException}.
+     *
+     * @return values converted to strings for the ContentResolver
+     */
+    @Nullable
+    static String[] toStrings(@Nullable Object[] values) {
+        if (values == null) {
+            return null;
+        }
+        String[] args = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            if (value instanceof Boolean) {
+                args[i] = (Boolean) value ? "1" : "0";
+            } else if (value instanceof byte[]) {
+                throw new IllegalArgumentException("Blob arguments are supported only with direct access to the database");
+            } else {
+                args[i] = String.valueOf(value);
+            }
         }
         return args;
     }
@@ -194,6 +279,105 @@ public class Where {
         return result;
     }
 
+    /**
+     * @return ORDER BY clause without keyword or null if order is not specified
+     */
+    @Nullable
+    public String orderBy() {
+        return join(mOrderBy);
+    }
+
+    /**
+     * @return GROUP BY clause without keyword or null if rows are not grouped
+     */
+    @Nullable
+    public String groupBy() {
+        return join(mGroupBy);
+    }
+
+    public boolean isDistinct() {
+        return mIsDistinct;
+    }
+
+    @Nullable
+    String getLimit() {
+        return mLimit;
+    }
+
+    @Nullable
+    String getOffset() {
+        return mOffset;
+    }
+
+    /**
+     * Copies only the selection and its' arguments, e.g. for statements which can't be ordered or limited
+     *
+     * @return new where, which can be changed independently of this one
+     */
+    @NonNull
+    Where copySelection() {
+        Where copy = new Where();
+        copy.mWhereBuilder.append(mWhereBuilder);
+        copy.mBindValues.addAll(mBindValues);
+        return copy;
+    }
+
+    /**
+     * @return new where with all parameters of this one, which can be changed independently
+     */
+    @NonNull
+    Where copy() {
+        Where copy = copySelection();
+        copy.mOrderBy.addAll(mOrderBy);
+        copy.mGroupBy.addAll(mGroupBy);
+        copy.mIsDistinct = mIsDistinct;
+        copy.mLimit = mLimit;
+        copy.mOffset = mOffset;
+        return copy;
+    }
+
+    /**
+     * Creates new where, which selects the same rows as the given one, but only after the specified key.
+     * Distinct is kept, while order, grouping, limit and offset are not copied. Original where is not changed.
+     *
+     * @param where    - where to restrict
+     * @param column   - key column, which is used for pagination
+     * @param afterKey - last seen value of the key column or null to start from the beginning
+     * @return where for the keyset page
+     */
+    @NonNull
+    static Where keyset(@NonNull Where where, @NonNull String column, @Nullable Object afterKey) {
+        Where keyset = new Where();
+        if (where.mWhereBuilder.length() > 0) {
+            keyset.mWhereBuilder.append("(").append(where.mWhereBuilder).append(")");
+            keyset.mBindValues.addAll(where.mBindValues);
+        }
+        if (afterKey != null) {
+            if (keyset.mWhereBuilder.length() > 0) {
+                keyset.and();
+            }
+            keyset.greaterThan(column, afterKey);
+        }
+        keyset.mIsDistinct = where.mIsDistinct;
+        return keyset;
+    }
+
+    static boolean isColumnName(@NonNull String column) {
+        return column.trim().matches("[A-Za-z_][A-Za-z0-9_.]*");
+    }
+
+    @Nullable
+    private static String join(@NonNull List<String> columns) {
+        if (columns.isEmpty()) {
+            return null;
+        }
+        StringBuilder builder = new StringBuilder(columns.get(0));
+        for (int i = 1; i < columns.size(); i++) {
+            builder.append(", ").append(columns.get(i));
+        }
+        return builder.toString();
+    }
+
     @NonNull
     private Where where(@NonNull String column, @NonNull String operand, @NonNull Object... values) {
         mWhereBuilder.append(column).append(operand);
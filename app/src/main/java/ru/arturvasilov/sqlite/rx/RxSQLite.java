@@ -3,14 +3,27 @@ package ru.arturvasilov.sqlite.rx;
 import android.content.Context;
 import android.net.Uri;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 
+import org.reactivestreams.Publisher;
+
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
 
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Flowable;
 import io.reactivex.Observable;
 import io.reactivex.ObservableSource;
 import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Consumer;
 import io.reactivex.functions.Function;
+import io.reactivex.schedulers.Schedulers;
+import ru.arturvasilov.sqlite.core.CancellableQuery;
+import ru.arturvasilov.sqlite.core.CompiledQuery;
+import ru.arturvasilov.sqlite.core.Page;
+import ru.arturvasilov.sqlite.core.Projection;
+import ru.arturvasilov.sqlite.core.QueryIterable;
 import ru.arturvasilov.sqlite.core.SQLite;
 import ru.arturvasilov.sqlite.core.Table;
 import ru.arturvasilov.sqlite.core.Where;
@@ -72,6 +85,82 @@ public class RxSQLite {
         });
     }
 
+    /**
+     * {@link SQLite#query(CompiledQuery, Object...)}
+     */
+    @NonNull
+    public <T> Observable<List<T>> query(@NonNull final CompiledQuery<T> query, @NonNull final Object... args) {
+        return Observable.fromCallable(new Callable<List<T>>() {
+            @Override
+            public List<T> call() throws Exception {
+                return SQLite.get().query(query, args);
+            }
+        });
+    }
+
+    /**
+     * {@link SQLite#query(Table, Projection, Where)}
+     */
+    @NonNull
+    public <R> Observable<List<R>> query(@NonNull final Table<?> table, @NonNull final Projection<R> projection,
+                                         @NonNull final Where where) {
+        return Observable.fromCallable(new Callable<List<R>>() {
+            @Override
+            public List<R> call() throws Exception {
+                return SQLite.get().query(table, projection, where);
+            }
+        });
+    }
+
+    /**
+     * {@link SQLite#iterate(Table)}
+     */
+    @NonNull
+    public <T> Observable<T> iterate(@NonNull final Table<T> table) {
+        return iterate(table, Where.create());
+    }
+
+    /**
+     * {@link SQLite#iterate(Table, Where)}
+     * <p/>
+     * Emits rows one by one as they are read from the cursor.
+     * Cursor is closed when observable completes, fails or is disposed (e.g. with {@link Observable#take(long)}).
+     */
+    @NonNull
+    public <T> Observable<T> iterate(@NonNull final Table<T> table, @NonNull final Where where) {
+        return Observable.using(new Callable<QueryIterable<T>>() {
+            @Override
+            public QueryIterable<T> call() throws Exception {
+                return SQLite.get().iterate(table, where);
+            }
+        }, new Function<QueryIterable<T>, ObservableSource<T>>() {
+            @Override
+            public ObservableSource<T> apply(QueryIterable<T> iterable) throws Exception {
+                return Observable.fromIterable(iterable);
+            }
+        }, new Consumer<QueryIterable<T>>() {
+            @Override
+            public void accept(QueryIterable<T> iterable) throws Exception {
+                iterable.close();
+            }
+        });
+    }
+
+    /**
+     * {@link SQLite#queryPage(Table, Where, String, int, Object)}
+     */
+    @NonNull
+    public <T> Observable<Page<T>> queryPage(@NonNull final Table<T> table, @NonNull final Where where,
+                                             @NonNull final String keyColumn, final int pageSize,
+                                             @Nullable final Object afterKey) {
+        return Observable.fromCallable(new Callable<Page<T>>() {
+            @Override
+            public Page<T> call() throws Exception {
+                return SQLite.get().queryPage(table, where, keyColumn, pageSize, afterKey);
+            }
+        });
+    }
+
     /**
      * {@link SQLite#querySingle(Table)}
      */
@@ -102,6 +191,28 @@ public class RxSQLite {
         }).take(1);
     }
 
+    /**
+     * {@link SQLite#querySingle(Table, Projection, Where)}
+     * <p/>
+     * Observable is guarantee to contain no more than one element.
+     */
+    @NonNull
+    public <R> Observable<R> querySingle(@NonNull final Table<?> table, @NonNull final Projection<R> projection,
+                                         @NonNull final Where where) {
+        return Observable.fromCallable(new Callable<List<R>>() {
+            @Override
+            public List<R> call() throws Exception {
+                R r = SQLite.get().querySingle(table, projection, where);
+                return r == null ? Collections.<R>emptyList() : Collections.singletonList(r);
+            }
+        }).flatMap(new Function<List<R>, ObservableSource<R>>() {
+            @Override
+            public ObservableSource<R> apply(List<R> list) throws Exception {
+                return Observable.fromIterable(list);
+            }
+        });
+    }
+
     /**
      * {@link SQLite#insert(Table, Object)}
      */
@@ -163,6 +274,88 @@ public class RxSQLite {
         });
     }
 
+    /**
+     * {@link SQLite#count(Table, Where)}
+     */
+    @NonNull
+    public Observable<Long> count(@NonNull final Table<?> table, @NonNull final Where where) {
+        return Observable.fromCallable(new Callable<Long>() {
+            @Override
+            public Long call() throws Exception {
+                return SQLite.get().count(table, where);
+            }
+        });
+    }
+
+    /**
+     * {@link SQLite#exists(Table, Where)}
+     */
+    @NonNull
+    public Observable<Boolean> exists(@NonNull final Table<?> table, @NonNull final Where where) {
+        return Observable.fromCallable(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return SQLite.get().exists(table, where);
+            }
+        });
+    }
+
+    /**
+     * {@link SQLite#min(Table, String, Where)}
+     */
+    @NonNull
+    public Observable<Double> min(@NonNull final Table<?> table, @NonNull final String column,
+                                  @NonNull final Where where) {
+        return Observable.fromCallable(new Callable<Double>() {
+            @Override
+            public Double call() throws Exception {
+                return SQLite.get().min(table, column, where);
+            }
+        });
+    }
+
+    /**
+     * {@link SQLite#max(Table, String, Where)}
+     */
+    @NonNull
+    public Observable<Double> max(@NonNull final Table<?> table, @NonNull final String column,
+                                  @NonNull final Where where) {
+        return Observable.fromCallable(new Callable<Double>() {
+            @Override
+            public Double call() throws Exception {
+                return SQLite.get().max(table, column, where);
+            }
+        });
+    }
+
+    /**
+     * {@link SQLite#sum(Table, String, Where)}
+     */
+    @NonNull
+    public Observable<Double> sum(@NonNull final Table<?> table, @NonNull final String column,
+                                  @NonNull final Where where) {
+        return Observable.fromCallable(new Callable<Double>() {
+            @Override
+            public Double call() throws Exception {
+                return SQLite.get().sum(table, column, where);
+            }
+        });
+    }
+
+    /**
+     * {@link SQLite#avg(Table, String, Where)}
+     */
+    @NonNull
+    public Observable<Double> avg(@NonNull final Table<?> table, @NonNull final String column,
+                                  @NonNull final Where where) {
+        return Observable.fromCallable(new Callable<Double>() {
+            @Override
+            public Double call() throws Exception {
+                return SQLite.get().avg(table, column, where);
+            }
+        });
+    }
+
     /**
      * Returns observable that emits new items when passed table is changed.
      * For more information please take a look at {@link TableObservable}
@@ -196,6 +389,61 @@ public class RxSQLite {
      */
     @NonNull
     public <T> TableObservable<T> observeChanges(@NonNull final Table<T> table) {
-        return new TableObservable<>(table);
+        return observeChanges(table, 0);
+    }
+
+    /**
+     * Same as {@link RxSQLite#observeChanges(Table)}, but all changes during the window are coalesced
+     * into the single item, which is emitted at the end of the window started by the first change.
+     * See {@link SQLite#registerObserver(Table, ru.arturvasilov.sqlite.core.BasicTableObserver, long)}
+     *
+     * @param table          - table to observe changes in
+     * @param debounceMillis - coalescing window in milliseconds, 0 to emit item for each change
+     * @return observable which emits items when table changes
+     */
+    @NonNull
+    public <T> TableObservable<T> observeChanges(@NonNull final Table<T> table, long debounceMillis) {
+        return new TableObservable<>(table, debounceMillis);
+    }
+
+    /**
+     * Observes the content of the table with backpressure support.
+     * <p/>
+     * After each change the table is queried in the background, and the query is latest-wins:
+     * when table changes while the previous query is running, that query is cancelled
+     * and its' result is never emitted. Slow consumers receive only the newest content.
+     *
+     * @param table - table to observe
+     * @param where - arguments to query table
+     * @return flowable which emits content of the table after each change
+     */
+    @NonNull
+    public <T> Flowable<List<T>> observeQuery(@NonNull Table<T> table, @NonNull Where where) {
+        return observeQuery(table, where, 0);
+    }
+
+    /**
+     * Same as {@link RxSQLite#observeQuery(Table, Where)}, but changes are coalesced
+     * as in {@link RxSQLite#observeChanges(Table, long)}
+     *
+     * @param table          - table to observe
+     * @param where          - arguments to query table
+     * @param debounceMillis - coalescing window in milliseconds, 0 to query after each change
+     * @return flowable which emits content of the table after changes
+     */
+    @NonNull
+    public <T> Flowable<List<T>> observeQuery(@NonNull final Table<T> table, @NonNull final Where where,
+                                              long debounceMillis) {
+        return observeChanges(table, debounceMillis)
+                .toFlowable(BackpressureStrategy.LATEST)
+                .switchMap(new Function<Boolean, Publisher<List<T>>>() {
+                    @Override
+                    public Publisher<List<T>> apply(Boolean value) throws Exception {
+                        return CancellableQuery.create(table, where)
+                                .toFlowable(BackpressureStrategy.LATEST)
+                                .subscribeOn(Schedulers.io());
+                    }
+                })
+                .onBackpressureLatest();
     }
 }
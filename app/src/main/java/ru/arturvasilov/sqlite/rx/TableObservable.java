@@ -5,12 +5,11 @@ import android.support.annotation.NonNull;
 import java.util.List;
 
 import io.reactivex.Observable;
-import io.reactivex.ObservableSource;
 import io.reactivex.Observer;
 import io.reactivex.android.MainThreadDisposable;
-import io.reactivex.functions.Function;
-import io.reactivex.schedulers.Schedulers;
 import ru.arturvasilov.sqlite.core.BasicTableObserver;
+import ru.arturvasilov.sqlite.core.ContentTableObserver;
+import ru.arturvasilov.sqlite.core.QueryErrorObserver;
 import ru.arturvasilov.sqlite.core.SQLite;
 import ru.arturvasilov.sqlite.core.Table;
 import ru.arturvasilov.sqlite.core.Where;
@@ -25,6 +24,11 @@ import ru.arturvasilov.sqlite.core.Where;
  * and {@link Observer#onComplete()} is never called.
  * <p/>
  * This observable add {@link TableObservable#withQuery()} method to allow you query all rows from the observed tabled.
+ * <p/>
+ * Note: observable from {@link TableObservable#withQuery(Where)} doesn't need {@code subscribeOn}:
+ * rows are always queried in the background thread and {@link Observer#onNext(Object)} is always called
+ * on the main thread, whatever scheduler is used for the subscription. Use {@code observeOn}
+ * if you want to process the rows in another thread. Failed query terminates it with {@link Observer#onError(Throwable)}.
  *
  * @author Artur Vasilov
  */
@@ -32,15 +36,18 @@ public class TableObservable<T> extends Observable<Boolean> {
 
     private final Table<T> mTable;
 
-    TableObservable(@NonNull Table<T> table) {
+    private final long mDebounceMillis;
+
+    TableObservable(@NonNull Table<T> table, long debounceMillis) {
         mTable = table;
+        mDebounceMillis = debounceMillis;
     }
 
     @Override
     protected void subscribeActual(Observer<? super Boolean> observer) {
         TableListener tableListener = new TableListener(observer);
         observer.onSubscribe(tableListener);
-        SQLite.get().registerObserver(mTable, tableListener);
+        SQLite.get().registerObserver(mTable, tableListener, mDebounceMillis);
     }
 
     /**
@@ -59,19 +66,26 @@ public class TableObservable<T> extends Observable<Boolean> {
      * This method transforms notifications observable to the observable
      * with list of all objects in the table which satisfies where parameter
      * <p>
-     * It also works in the background.
+     * Query works in the background and rows are emitted on the main thread.
+     * <p>
+     * Only the latest result is emitted: when table changes while the previous query is running,
+     * result of that query is dropped.
+     * <p>
+     * Subscribers with the same where parameters share the single query for each table change.
      *
      * @param where - arguments to query table
      * @return observable with all elements from the table
      */
     @NonNull
     public Observable<List<T>> withQuery(@NonNull final Where where) {
-        return flatMap(new Function<Boolean, ObservableSource<List<T>>>() {
+        return new Observable<List<T>>() {
             @Override
-            public ObservableSource<List<T>> apply(Boolean value) throws Exception {
-                return RxSQLite.get().query(mTable, where);
+            protected void subscribeActual(Observer<? super List<T>> observer) {
+                QueryListener queryListener = new QueryListener(observer);
+                observer.onSubscribe(queryListener);
+                SQLite.get().registerObserver(mTable, queryListener, where, mDebounceMillis);
             }
-        }).subscribeOn(Schedulers.io());
+        };
     }
 
     private class TableListener extends MainThreadDisposable implements BasicTableObserver {
@@ -93,4 +107,31 @@ public class TableObservable<T> extends Observable<Boolean> {
         }
     }
 
+    private class QueryListener extends MainThreadDisposable implements ContentTableObserver<T>, QueryErrorObserver {
+
+        private final Observer<? super List<T>> mObserver;
+
+        QueryListener(@NonNull Observer<? super List<T>> observer) {
+            mObserver = observer;
+        }
+
+        @Override
+        public void onTableChanged(@NonNull List<T> tableData) {
+            mObserver.onNext(tableData);
+        }
+
+        @Override
+        public void onQueryError(@NonNull Throwable error) {
+            if (!isDisposed()) {
+                dispose();
+                mObserver.onError(error);
+            }
+        }
+
+        @Override
+        protected void onDispose() {
+            SQLite.get().unregisterObserver(this);
+        }
+    }
+
 }
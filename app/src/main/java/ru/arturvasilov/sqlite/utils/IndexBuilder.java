@@ -0,0 +1,129 @@
+package ru.arturvasilov.sqlite.utils;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Declaration of the index, which is created together with the table by {@link TableBuilder#index(IndexBuilder)}
+ * <pre>
+ * {code
+ * TableBuilder.create(this)
+ *         .intColumn(ID)
+ *         .textColumn(NAME)
+ *         .intColumn(AGE)
+ *         .primaryKey(ID)
+ *         .index(IndexBuilder.create("person_age_name").descColumn(AGE).column(NAME))
+ *         .index(IndexBuilder.create("person_name").unique().column(NAME).where(AGE + " > 0"))
+ *         .execute(database);
+ * }
+ * </pre>
+ * Index is created with the name {@code <table>__<name>} (e.g. {@code Person__person_age_name}),
+ * so names of different tables never clash. Only indexes named this way are managed by {@link TableBuilder}:
+ * they are dropped on upgrade when they are not declared anymore, while indexes created by hand with other names are kept.
+ *
+ * @author Artur Vasilov
+ */
+public final class IndexBuilder {
+
+    private static final String NAME_SEPARATOR = "__";
+
+    private final String mName;
+    private final List<String> mColumns;
+    private boolean mIsUnique;
+    private String mWhere;
+
+    private IndexBuilder(@NonNull String name) {
+        mName = name;
+        mColumns = new ArrayList<>();
+    }
+
+    @NonNull
+    public static IndexBuilder create(@NonNull String name) {
+        return new IndexBuilder(name);
+    }
+
+    /**
+     * Adds column to the index in ascending order. Order of calls defines the order of columns in the index.
+     */
+    @NonNull
+    public IndexBuilder column(@NonNull String columnName) {
+        mColumns.add(columnName);
+        return this;
+    }
+
+    /**
+     * Adds column to the index in descending order
+     */
+    @NonNull
+    public IndexBuilder descColumn(@NonNull String columnName) {
+        mColumns.add(columnName + " DESC");
+        return this;
+    }
+
+    @NonNull
+    public IndexBuilder unique() {
+        mIsUnique = true;
+        return this;
+    }
+
+    /**
+     * Makes the index partial, so only rows which satisfy the condition are indexed
+     *
+     * @param condition - SQL condition without WHERE keyword
+     */
+    @NonNull
+    public IndexBuilder where(@NonNull String condition) {
+        mWhere = condition;
+        return this;
+    }
+
+    @NonNull
+    String getName() {
+        return mName;
+    }
+
+    /**
+     * @return prefix of the names of all indexes of the table, which are created by the builder
+     */
+    @NonNull
+    static String getNamePrefix(@NonNull String tableName) {
+        return tableName + NAME_SEPARATOR;
+    }
+
+    @NonNull
+    String getFullName(@NonNull String tableName) {
+        return getNamePrefix(tableName) + mName;
+    }
+
+    /**
+     * SQL is built in the same form, in which SQLite stores it in sqlite_master,
+     * so changed declarations can be found on upgrade
+     */
+    @NonNull
+    @VisibleForTesting
+    String buildSQL(@NonNull String tableName) {
+        if (mColumns.isEmpty()) {
+            throw new IllegalStateException("Cannot create index with no columns");
+        }
+
+        StringBuilder builder = new StringBuilder();
+        builder.append(mIsUnique ? "CREATE UNIQUE INDEX " : "CREATE INDEX ")
+                .append(getFullName(tableName))
+                .append(" ON ")
+                .append(tableName)
+                .append("(")
+                .append(mColumns.get(0));
+        for (int i = 1; i < mColumns.size(); i++) {
+            builder.append(", ").append(mColumns.get(i));
+        }
+        builder.append(")");
+        if (mWhere != null) {
+            builder.append(" WHERE ").append(mWhere);
+        }
+        return builder.toString();
+    }
+
+}
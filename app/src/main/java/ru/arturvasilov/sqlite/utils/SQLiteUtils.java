@@ -24,19 +24,7 @@ public class SQLiteUtils {
      * @return whatever table is empty or not
      */
     public static <T> boolean isTableEmpty(@NonNull Table<T> table) {
-        Cursor cursor = SQLite.get().getContentResolver().query(
-                table.getUri(),
-                new String[] {"count(*) AS count"},
-                null,
-                null,
-                null);
-        try {
-            return cursor == null || cursor.getCount() == 0
-                    || !cursor.moveToFirst() || cursor.getInt(0) == 0;
-        }
-        finally {
-            safeCloseCursor(cursor);
-        }
+        return !SQLite.get().exists(table);
     }
 
     /**
@@ -58,6 +46,29 @@ public class SQLiteUtils {
         return !cursor.moveToFirst();
     }
 
+    /**
+     * Reads value from the current row of cursor according to its' type in database
+     *
+     * @param cursor - cursor at the right position
+     * @param index  - index of the column
+     * @return Long, Double, String, byte[] or null for the corresponding type of value
+     */
+    @Nullable
+    public static Object getValue(@NonNull Cursor cursor, int index) {
+        switch (cursor.getType(index)) {
+            case Cursor.FIELD_TYPE_NULL:
+                return null;
+            case Cursor.FIELD_TYPE_INTEGER:
+                return cursor.getLong(index);
+            case Cursor.FIELD_TYPE_FLOAT:
+                return cursor.getDouble(index);
+            case Cursor.FIELD_TYPE_BLOB:
+                return cursor.getBlob(index);
+            default:
+                return cursor.getString(index);
+        }
+    }
+
     /**
      * Closing cursor was always the hell (since you have to check if it's null or closed and so on,
      * but this method handles all the cases and safely closes the cursor.
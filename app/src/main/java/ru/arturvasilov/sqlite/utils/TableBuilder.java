@@ -1,12 +1,15 @@
 package ru.arturvasilov.sqlite.utils;
 
+import android.database.Cursor;
 import android.support.annotation.NonNull;
 import android.support.annotation.VisibleForTesting;
 
 import org.sqlite.database.sqlite.SQLiteDatabase;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import ru.arturvasilov.sqlite.core.Table;
 
@@ -20,12 +23,14 @@ public final class TableBuilder {
     private final List<String> mIntegerColumns;
     private final List<String> mRealColumns;
     private final List<String> mTextColumns;
+    private final List<IndexBuilder> mIndexes;
 
     private TableBuilder() {
         mPrimaryKeys = new ArrayList<>();
         mIntegerColumns = new ArrayList<>();
         mRealColumns = new ArrayList<>();
         mTextColumns = new ArrayList<>();
+        mIndexes = new ArrayList<>();
     }
 
     @NonNull
@@ -70,8 +75,60 @@ public final class TableBuilder {
         return this;
     }
 
+    /**
+     * Declares the index of the table, more in {@link IndexBuilder}
+     * <p/>
+     * When the table already exists (e.g. on upgrade), indexes of the builder, which were changed
+     * or are not declared anymore, are dropped and the new ones are created.
+     * Indexes created by hand are never dropped, since their names don't have the prefix of the builder.
+     */
+    @NonNull
+    public TableBuilder index(@NonNull IndexBuilder index) {
+        for (int i = 0; i < mIndexes.size(); i++) {
+            if (mIndexes.get(i).getName().equals(index.getName())) {
+                mIndexes.set(i, index);
+                return this;
+            }
+        }
+        mIndexes.add(index);
+        return this;
+    }
+
     public void execute(@NonNull SQLiteDatabase database) {
         database.execSQL(buildSQL());
+        reconcileIndexes(database);
+    }
+
+    private void reconcileIndexes(@NonNull SQLiteDatabase database) {
+        Map<String, String> declaredIndexes = new HashMap<>();
+        for (IndexBuilder index : mIndexes) {
+            declaredIndexes.put(index.getFullName(mTableName), index.buildSQL(mTableName));
+        }
+        String ownedPrefix = IndexBuilder.getNamePrefix(mTableName);
+
+        // indexes with null sql are created by SQLite itself for primary keys and unique constraints
+        Cursor cursor = database.rawQuery("SELECT name, sql FROM sqlite_master "
+                + "WHERE type = 'index' AND tbl_name = ? AND sql IS NOT NULL", new String[]{mTableName});
+        try {
+            while (cursor.moveToNext()) {
+                String name = cursor.getString(0);
+                String sql = cursor.getString(1);
+                if (!name.startsWith(ownedPrefix)) {
+                    continue;
+                }
+                if (sql.equals(declaredIndexes.get(name))) {
+                    declaredIndexes.remove(name);
+                } else {
+                    database.execSQL("DROP INDEX IF EXISTS " + name);
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+
+        for (String sql : declaredIndexes.values()) {
+            database.execSQL(sql);
+        }
     }
 
     @VisibleForTesting
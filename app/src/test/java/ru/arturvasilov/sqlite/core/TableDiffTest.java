@@ -0,0 +1,82 @@
+package ru.arturvasilov.sqlite.core;
+
+import android.support.annotation.NonNull;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Artur Vasilov
+ */
+@RunWith(JUnit4.class)
+public class TableDiffTest {
+
+    private static final DiffTableObserver<String> OBSERVER = new DiffTableObserver<String>() {
+        @NonNull
+        @Override
+        public Object getKey(@NonNull String item) {
+            return item.substring(0, 1);
+        }
+
+        @Override
+        public void onTableChanged(@NonNull TableDiff<String> diff) {
+            // Do nothing
+        }
+    };
+
+    @Test
+    public void testFirstContent() throws Exception {
+        TableDiff<String> diff = calculate(Collections.<String>emptyList(), Arrays.asList("a1", "b1"));
+        assertEquals(Arrays.asList("a1", "b1"), diff.getInserted());
+        assertEquals(Arrays.asList("a1", "b1"), diff.getItems());
+        assertTrue(diff.getRemoved().isEmpty());
+        assertTrue(diff.getChanged().isEmpty());
+        assertTrue(diff.getMoved().isEmpty());
+    }
+
+    @Test
+    public void testEmptyDiff() throws Exception {
+        TableDiff<String> diff = calculate(Arrays.asList("a1", "b1"), Arrays.asList("a1", "b1"));
+        assertTrue(diff.isEmpty());
+    }
+
+    @Test
+    public void testInsertedAndRemoved() throws Exception {
+        TableDiff<String> diff = calculate(Arrays.asList("a1", "b1", "c1"), Arrays.asList("a1", "c1", "d1"));
+        assertEquals(Collections.singletonList("d1"), diff.getInserted());
+        assertEquals(Collections.singletonList("b1"), diff.getRemoved());
+        assertTrue(diff.getChanged().isEmpty());
+        assertTrue(diff.getMoved().isEmpty());
+    }
+
+    @Test
+    public void testChanged() throws Exception {
+        TableDiff<String> diff = calculate(Arrays.asList("a1", "b1"), Arrays.asList("a1", "b2"));
+        assertEquals(Collections.singletonList("b2"), diff.getChanged());
+        assertTrue(diff.getInserted().isEmpty());
+        assertTrue(diff.getRemoved().isEmpty());
+        assertTrue(diff.getMoved().isEmpty());
+    }
+
+    @Test
+    public void testMoved() throws Exception {
+        TableDiff<String> diff = calculate(Arrays.asList("a1", "b1", "c1", "d1"), Arrays.asList("d1", "a1", "b1", "c1"));
+        assertEquals(Collections.singletonList("d1"), diff.getMoved());
+        assertTrue(diff.getInserted().isEmpty());
+        assertTrue(diff.getRemoved().isEmpty());
+        assertTrue(diff.getChanged().isEmpty());
+    }
+
+    @NonNull
+    private static TableDiff<String> calculate(@NonNull List<String> oldItems, @NonNull List<String> newItems) {
+        return TableDiff.calculate(oldItems, newItems, OBSERVER);
+    }
+}
@@ -11,7 +11,9 @@ import org.junit.runners.JUnit4;
 
 import static junit.framework.Assert.assertNotNull;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author Artur Vasilov
@@ -150,6 +152,100 @@ public class WhereTest {
         checkWhere("id IN(?, ?, ?) AND text LIKE ?", new String[]{"18", "20", "24", "hello"}, " LIMIT 1", where);
     }
 
+    @Test
+    public void testKeysetFirstPage() throws Exception {
+        Where where = Where.keyset(Where.create(), "id", null);
+        checkWhere(null, null, null, where);
+    }
+
+    @Test
+    public void testKeysetAfterKey() throws Exception {
+        Where where = Where.keyset(Where.create(), "id", 20);
+        checkWhere("id > ?", new String[]{"20"}, null, where);
+    }
+
+    @Test
+    public void testKeysetWithQuery() throws Exception {
+        Where original = Where.create().equalTo("city", "London").or().like("country", "R");
+        Where where = Where.keyset(original, "id", 20);
+        checkWhere("(city = ? OR country LIKE ?) AND id > ?", new String[]{"London", "R", "20"}, null, where);
+        checkWhere("city = ? OR country LIKE ?", new String[]{"London", "R"}, null, original);
+    }
+
+    @Test
+    public void testKeysetKeepsDistinct() throws Exception {
+        Where original = Where.create().equalTo("city", "London").distinct().groupBy("name").orderBy("name");
+        Where where = Where.keyset(original, "id", 20);
+        assertTrue(where.isDistinct());
+        assertNull(where.groupBy());
+        assertNull(where.orderBy());
+    }
+
+    @Test
+    public void testBindValuesKeepTypes() throws Exception {
+        byte[] blob = new byte[]{1, 2};
+        Where where = Where.create().greaterThan("rating", 4.5).and().equalTo("id", 7L)
+                .and().equalTo("data", blob).and().where("text IS ?", (Object) null);
+        Object[] values = where.bindValues();
+        assertNotNull(values);
+        assertEquals(4, values.length);
+        assertEquals(4.5, values[0]);
+        assertEquals(7L, values[1]);
+        assertTrue(values[2] == blob);
+        assertNull(values[3]);
+        assertEquals("rating > ? AND id = ? AND data = ? AND text IS ?", where.where());
+    }
+
+    @Test
+    public void testWhereArgsConvertBooleans() throws Exception {
+        Where where = Where.create().equalTo("flag", true).and().equalTo("other", false).and().where("text IS ?", (Object) null);
+        checkWhere("flag = ? AND other = ? AND text IS ?", new String[]{"1", "0", "null"}, null, where);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWhereArgsRejectBlobs() throws Exception {
+        Where.create().equalTo("data", new byte[]{1, 2}).whereArgs();
+    }
+
+    @Test
+    public void testOrderBy() throws Exception {
+        Where where = Where.create().greaterThan("age", 18).orderByDescending("age").orderBy("name").limit(20);
+        checkWhere("age > ?", new String[]{"18"}, " LIMIT 20", where);
+        assertEquals("age DESC, name", where.orderBy());
+        assertNull(where.groupBy());
+        assertFalse(where.isDistinct());
+    }
+
+    @Test
+    public void testGroupByAndDistinct() throws Exception {
+        Where where = Where.create().groupBy("city", "country").distinct();
+        checkWhere(null, null, null, where);
+        assertEquals("city, country", where.groupBy());
+        assertNull(where.orderBy());
+        assertTrue(where.isDistinct());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGroupByRejectsExpressions() throws Exception {
+        Where.create().groupBy("city", "length(name)");
+    }
+
+    @Test
+    public void testCopy() throws Exception {
+        Where original = Where.create().equalTo("city", "London").orderBy("name").limit(5).offset(10);
+        Where copy = original.copy();
+        copy.and().greaterThan("age", 18).orderBy("age").limit(1);
+
+        checkWhere("city = ?", new String[]{"London"}, " LIMIT 5 OFFSET 10", original);
+        assertEquals("name", original.orderBy());
+        checkWhere("city = ? AND age > ?", new String[]{"London", "18"}, " LIMIT 1 OFFSET 10", copy);
+        assertEquals("name, age", copy.orderBy());
+
+        Where selection = original.copySelection();
+        checkWhere("city = ?", new String[]{"London"}, null, selection);
+        assertNull(selection.orderBy());
+    }
+
     private void checkWhere(@Nullable String where, @Nullable String[] args,
                             @Nullable String limit, @NonNull Where testWhere) {
         assertEquals(where, testWhere.where());
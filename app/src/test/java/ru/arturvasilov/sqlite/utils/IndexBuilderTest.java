@@ -0,0 +1,58 @@
+package ru.arturvasilov.sqlite.utils;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static junit.framework.TestCase.assertEquals;
+
+@RunWith(JUnit4.class)
+public class IndexBuilderTest {
+
+    @Test(expected = IllegalStateException.class)
+    public void testEmptyColumnsList() throws Exception {
+        IndexBuilder.create("test_index").buildSQL("JUnitTestTable");
+    }
+
+    @Test
+    public void testSingleColumn() throws Exception {
+        String sql = "CREATE INDEX JUnitTestTable__test_index ON JUnitTestTable(test)";
+
+        assertEquals(sql, IndexBuilder.create("test_index")
+                .column("test")
+                .buildSQL("JUnitTestTable"));
+    }
+
+    @Test
+    public void testMultipleColumnsWithOrder() throws Exception {
+        String sql = "CREATE INDEX JUnitTestTable__test_index ON JUnitTestTable(int1 DESC, string1, real1 DESC)";
+
+        assertEquals(sql, IndexBuilder.create("test_index")
+                .descColumn("int1")
+                .column("string1")
+                .descColumn("real1")
+                .buildSQL("JUnitTestTable"));
+    }
+
+    @Test
+    public void testUniqueIndex() throws Exception {
+        String sql = "CREATE UNIQUE INDEX JUnitTestTable__test_index ON JUnitTestTable(int1, string1)";
+
+        assertEquals(sql, IndexBuilder.create("test_index")
+                .unique()
+                .column("int1")
+                .column("string1")
+                .buildSQL("JUnitTestTable"));
+    }
+
+    @Test
+    public void testPartialIndex() throws Exception {
+        String sql = "CREATE UNIQUE INDEX JUnitTestTable__test_index ON JUnitTestTable(string1) WHERE int1 > 0";
+
+        assertEquals(sql, IndexBuilder.create("test_index")
+                .unique()
+                .column("string1")
+                .where("int1 > 0")
+                .buildSQL("JUnitTestTable"));
+    }
+}